@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/*
+  基准测试的被测代码入口：与程序源码同在默认包，实现bench.Targets供具名包中的JMH基准类调用
+  测试数据由生成器本身产生（固定随机种子的分数、生成器输出的习题），与命令行程序处理的数据一致
+ */
+public class BenchmarkTargets implements bench.Targets {
+    private static final long SEED = 20240901L;
+
+    private Fraction[] lefts;   // 分数运算的左操作数
+    private Fraction[] rights;  // 分数运算的右操作数（均不为0）
+    private ArithmeticGenerator.Expression[] expressions; // 表达式树
+    private String[] exerciseLines; // 习题行（"序号. 表达式 ="）
+    private String[] answerLines;   // 答案行（"序号. 答案"）
+    private String[] infix;         // 习题行中的表达式部分，供evaluateExpression使用
+    private final ExpressionScanner scanner = new ExpressionScanner();
+    private final ExpressionFormatter formatter = new ExpressionFormatter(); // 与生成器一样复用同一个格式化器
+
+    @Override
+    public void prepareFractions(int count, int range) {
+        Random random = new Random(SEED);
+        lefts = new Fraction[count];
+        rights = new Fraction[count];
+        for (int i = 0; i < count; i++) {
+            lefts[i] = randomFraction(random, range);
+            rights[i] = randomFraction(random, range);
+        }
+    }
+
+    //随机真分数或带分数：分子1~range-1，分母2~range
+    private static Fraction randomFraction(Random random, int range) {
+        int denominator = random.nextInt(range - 1) + 2;
+        int integer = random.nextInt(range);
+        return new Fraction((long) integer * denominator + random.nextInt(denominator - 1) + 1, denominator);
+    }
+
+    @Override
+    public Object fractionAdd(int i) {
+        return lefts[i].add(rights[i]);
+    }
+
+    @Override
+    public Object fractionSubtract(int i) {
+        return lefts[i].subtract(rights[i]);
+    }
+
+    @Override
+    public Object fractionMultiply(int i) {
+        return lefts[i].multiply(rights[i]);
+    }
+
+    @Override
+    public Object fractionDivide(int i) {
+        return lefts[i].divide(rights[i]);
+    }
+
+    @Override
+    public int fractionCompare(int i) {
+        return lefts[i].compareTo(rights[i]);
+    }
+
+    @Override
+    public String fractionToString(int i) {
+        return lefts[i].toString();
+    }
+
+    @Override
+    public void generate(int n, int range) throws IOException {
+        try (StreamingWriter writer = new StreamingWriter(new DiscardingChannel(), new DiscardingChannel())) {
+            new ArithmeticGenerator(range, ".", 3, SEED).generate(n, writer);
+        }
+    }
+
+    @Override
+    public void prepareExpressions(int count, int range) {
+        try {
+            generateLines(count, range);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        expressions = new ArithmeticGenerator.Expression[count];
+        for (int i = 0; i < count; i++) {
+            expressions[i] = ExerciseBank.parse(infix[i]);
+        }
+    }
+
+    @Override
+    public void resetExpressions() {
+        Deque<ArithmeticGenerator.Expression> stack = new ArrayDeque<>();
+        for (ArithmeticGenerator.Expression expression : expressions) {
+            stack.push(expression);
+            while (!stack.isEmpty()) {
+                ArithmeticGenerator.Expression node = stack.pop();
+                node.canonicalOrder = ExpressionFormatter.ORDER_UNKNOWN;
+                node.text = null;
+                if (node.value == null) {
+                    stack.push(node.left);
+                    stack.push(node.right);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String canonical(int i) {
+        return formatter.canonical(expressions[i]);
+    }
+
+    @Override
+    public String format(int i) {
+        return formatter.format(expressions[i]);
+    }
+
+    @Override
+    public void prepareExercises(int count, int range, String directory) throws IOException {
+        generateLines(count, range);
+        Files.write(Paths.get(directory, "Exercises.txt"), List.of(exerciseLines));
+        Files.write(Paths.get(directory, "Answers.txt"), List.of(answerLines));
+    }
+
+    @Override
+    public int exerciseCount() {
+        return exerciseLines.length;
+    }
+
+    @Override
+    public Object evaluateExpression(int i) {
+        return new Grader(".").evaluateExpression(infix[i]);
+    }
+
+    @Override
+    public boolean scanLine(int i) {
+        return scanner.isCorrect(exerciseLines[i], answerLines[i]);
+    }
+
+    @Override
+    public void grade(String directory) throws IOException {
+        new Grader(directory).grade(Paths.get(directory, "Exercises.txt").toString(),
+                Paths.get(directory, "Answers.txt").toString());
+    }
+
+    //用生成器生成count道题目，把输出的习题行、答案行保存在内存中
+    private void generateLines(int count, int range) throws IOException {
+        MemoryWriter writer = new MemoryWriter();
+        new ArithmeticGenerator(range, ".", 3, SEED).generate(count, writer);
+        exerciseLines = writer.exercises().split(System.lineSeparator());
+        answerLines = writer.answers().split(System.lineSeparator());
+        List<String> expressionTexts = new ArrayList<>(count);
+        for (String line : exerciseLines) {
+            int start = ExpressionScanner.skipNumbering(line, 0, line.length());
+            expressionTexts.add(line.substring(start, line.lastIndexOf('=')).trim());
+        }
+        infix = expressionTexts.toArray(new String[0]);
+    }
+
+    //丢弃全部写入内容的通道，只测量生成与编码本身
+    private static class DiscardingChannel implements WritableByteChannel {
+        private boolean open = true;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
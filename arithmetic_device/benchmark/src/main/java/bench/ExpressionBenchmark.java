@@ -0,0 +1,71 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+  表达式基准：对生成器产生的表达式树测量规范化字符串（去重用）与题目文本格式化的耗时
+  格式化器把规范化顺序缓存在节点上，生成器对每棵新树只计算一次规范化字符串；
+  因此canonical每次调用处理全部COUNT棵树，调用前清除缓存（FreshTrees），按树的数量折算为每棵树的平均耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    private static final int COUNT = 1024; // 表达式数量（2的幂，便于取模轮转）
+
+    @Param({"10", "100"})
+    public int range;
+
+    private Targets targets;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        targets = Targets.create();
+        targets.prepareExpressions(COUNT, range);
+    }
+
+    private int next() {
+        return i = (i + 1) & (COUNT - 1);
+    }
+
+    //每次调用canonical前清除全部树上的缓存，使每次测量都与新生成的树一样从头计算规范化顺序
+    @State(Scope.Thread)
+    public static class FreshTrees {
+        @Setup(Level.Invocation)
+        public void reset(ExpressionBenchmark benchmark) {
+            benchmark.targets.resetExpressions();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void canonical(FreshTrees fresh, Blackhole blackhole) {
+        for (int j = 0; j < COUNT; j++) {
+            blackhole.consume(targets.canonical(j));
+        }
+    }
+
+    @Benchmark
+    public String format() {
+        return targets.format(next());
+    }
+}
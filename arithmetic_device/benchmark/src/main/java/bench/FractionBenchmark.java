@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+  分数运算基准：对一组预先生成的随机分数轮流执行四则运算、比较与格式化，测量单次操作的平均耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FractionBenchmark {
+    private static final int COUNT = 1024; // 分数对数量（2的幂，便于取模轮转）
+
+    @Param({"10", "100"})
+    public int range;
+
+    private Targets targets;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        targets = Targets.create();
+        targets.prepareFractions(COUNT, range);
+    }
+
+    private int next() {
+        return i = (i + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public Object add() {
+        return targets.fractionAdd(next());
+    }
+
+    @Benchmark
+    public Object subtract() {
+        return targets.fractionSubtract(next());
+    }
+
+    @Benchmark
+    public Object multiply() {
+        return targets.fractionMultiply(next());
+    }
+
+    @Benchmark
+    public Object divide() {
+        return targets.fractionDivide(next());
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return targets.fractionCompare(next());
+    }
+
+    @Benchmark
+    public String format() {
+        return targets.fractionToString(next());
+    }
+}
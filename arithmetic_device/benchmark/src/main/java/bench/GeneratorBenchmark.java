@@ -0,0 +1,47 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+  生成器吞吐量基准：每次调用用新的生成器生成n道不重复的题目（对应命令行的-n与-r），
+  习题与答案照常编码但写入丢弃输出的通道，测量结果不受磁盘影响
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int n;
+
+    @Param({"10", "100"})
+    public int range;
+
+    private Targets targets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        targets = Targets.create();
+    }
+
+    @Benchmark
+    public void generate() throws IOException {
+        targets.generate(n, range);
+    }
+}
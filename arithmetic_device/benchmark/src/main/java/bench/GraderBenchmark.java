@@ -0,0 +1,84 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+  批改基准：单个表达式求值（Grader.evaluateExpression）、单行批改（ExpressionScanner），
+  以及对临时目录中n道题的习题文件与答案文件完整批改（Grader.grade，含读文件与写Grade.txt）
+  grade按题目数量折算为每道题的平均耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraderBenchmark {
+    private static final int COUNT = 10000; // 题目数量
+
+    @Param({"10", "100"})
+    public int range;
+
+    private Targets targets;
+    private Path directory;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        targets = Targets.create();
+        directory = Files.createTempDirectory("arithmetic-bench");
+        targets.prepareExercises(COUNT, range, directory.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private int next() {
+        if (++i == targets.exerciseCount()) {
+            i = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public Object evaluateExpression() {
+        return targets.evaluateExpression(next());
+    }
+
+    @Benchmark
+    public boolean scanLine() {
+        return targets.scanLine(next());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void grade() throws IOException {
+        targets.grade(directory.toString());
+    }
+}
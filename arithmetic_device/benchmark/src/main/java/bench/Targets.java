@@ -0,0 +1,62 @@
+package bench;
+
+import java.io.IOException;
+
+/*
+  被测代码的调用入口：程序源码位于默认包，而JMH要求基准类位于具名包，具名包又无法直接引用默认包中的类，
+  因此由默认包中的BenchmarkTargets实现该接口，基准类只通过接口调用（每个@State持有一个实例）
+  prepare*方法在@Setup中准备数据，其余方法为被测操作，返回值交给Blackhole防止被JIT消除
+ */
+public interface Targets {
+
+    //创建默认包中的实现类实例
+    static Targets create() {
+        try {
+            return (Targets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("找不到BenchmarkTargets", e);
+        }
+    }
+
+    //准备count对随机分数（数值范围range）
+    void prepareFractions(int count, int range);
+
+    Object fractionAdd(int i);
+
+    Object fractionSubtract(int i);
+
+    Object fractionMultiply(int i);
+
+    Object fractionDivide(int i);
+
+    int fractionCompare(int i);
+
+    String fractionToString(int i);
+
+    //生成n道题目（数值范围range），习题与答案写入丢弃输出的通道
+    void generate(int n, int range) throws IOException;
+
+    //准备count棵表达式树（数值范围range）
+    void prepareExpressions(int count, int range);
+
+    //清除全部表达式树上缓存的规范化顺序与叶子文本，使下一次canonical与新生成的树一样从头计算
+    void resetExpressions();
+
+    String canonical(int i);
+
+    String format(int i);
+
+    //准备count道题目的习题行与答案行，并写入directory下的Exercises.txt与Answers.txt
+    void prepareExercises(int count, int range, String directory) throws IOException;
+
+    int exerciseCount();
+
+    //用Grader.evaluateExpression计算第i道习题的表达式
+    Object evaluateExpression(int i);
+
+    //用ExpressionScanner批改第i道题（习题行 + 答案行）
+    boolean scanLine(int i);
+
+    //用Grader批改prepareExercises写出的文件
+    void grade(String directory) throws IOException;
+}
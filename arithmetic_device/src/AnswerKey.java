@@ -0,0 +1,123 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+  标准答案表：将习题文件中的每道题计算一次，保存化简后的分数（分子、分母）和标准答案字符串
+  批改时先把学生答案与标准答案字符串直接比较（按标准格式作答时无需解析），不同时再解析为分数与化简后的分数比较，
+  避免每批改一份答卷都重新计算全部习题
+  创建后只读，可被多个线程同时使用
+ */
+public class AnswerKey {
+    // 每个线程复用一个扫描器解析学生答案（扫描器不能被多个线程同时使用）
+    private static final ThreadLocal<ExpressionScanner> SCANNERS = ThreadLocal.withInitial(ExpressionScanner::new);
+
+    private final long[] numerators;   // 第i题标准答案的分子（已化简）
+    private final long[] denominators; // 第i题标准答案的分母（已化简，恒为正）
+    private final String[] answers;    // 第i题标准答案的字符串形式（与生成器写入Answers.txt的格式一致），习题无法计算时为null
+
+    private AnswerKey(long[] numerators, long[] denominators, String[] answers) {
+        this.numerators = numerators;
+        this.denominators = denominators;
+        this.answers = answers;
+    }
+
+    //读取习题文件并计算每道题的标准答案；习题文件为二进制题库时直接读取其中预先计算好的答案
+    public static AnswerKey load(String exerciseFile) throws IOException {
+        if (ExerciseBank.isBank(exerciseFile)) {
+            try (ExerciseBank bank = ExerciseBank.open(exerciseFile)) {
+                return fromBank(bank);
+            }
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(exerciseFile, StreamingWriter.CHARSET))) {
+            return read(reader);
+        }
+    }
+
+    //从习题行（"序号. 表达式 ="）逐行读取并计算每道题的标准答案，格式错误或无法计算的习题记为null（任何答案都判为错误）
+    public static AnswerKey read(BufferedReader reader) throws IOException {
+        long[] numerators = new long[1024];
+        long[] denominators = new long[1024];
+        String[] answers = new String[1024];
+        ExpressionScanner scanner = new ExpressionScanner();
+        int size = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (size == answers.length) {
+                numerators = Arrays.copyOf(numerators, size * 2);
+                denominators = Arrays.copyOf(denominators, size * 2);
+                answers = Arrays.copyOf(answers, size * 2);
+            }
+            int start = ExpressionScanner.skipNumbering(line, 0, line.length());
+            if (start >= 0 && scanner.evaluate(line, start, line.length())) {
+                numerators[size] = scanner.numerator;
+                denominators[size] = scanner.denominator;
+                answers[size] = new Fraction(scanner.numerator, scanner.denominator).toString();
+            }
+            size++;
+        }
+        return new AnswerKey(Arrays.copyOf(numerators, size), Arrays.copyOf(denominators, size),
+                Arrays.copyOf(answers, size));
+    }
+
+    //从二进制题库按题号读取每道题预先计算好的答案（只读取记录开头的答案，无需解析表达式）
+    public static AnswerKey fromBank(ExerciseBank bank) throws IOException {
+        if (bank.count() > Integer.MAX_VALUE - 8) {
+            throw new IOException("题库中的题目过多（" + bank.count() + " 道），无法建立标准答案表");
+        }
+        int size = (int) bank.count();
+        long[] numerators = new long[size];
+        long[] denominators = new long[size];
+        String[] answers = new String[size];
+        ExerciseBank.Cursor cursor = bank.cursor();
+        for (int i = 0; i < size; i++) {
+            cursor.seek(i);
+            numerators[i] = cursor.answerNumerator;
+            denominators[i] = cursor.answerDenominator;
+            answers[i] = cursor.answer().toString();
+        }
+        return new AnswerKey(numerators, denominators, answers);
+    }
+
+    //题目数量
+    public int size() {
+        return answers.length;
+    }
+
+    //格式正确且能计算出答案的习题数量
+    public int validCount() {
+        int count = 0;
+        for (String answer : answers) {
+            if (answer != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+      判断答案行（"序号. 答案"）是否为第i题（从0开始）的正确答案
+      先去掉首尾空白后与标准答案字符串直接比较；不同时与单份批改（Grader）使用同一个解析器ExpressionScanner.parseAnswer，
+      解析为化简后的分数再比较，因此同一份答卷在两种模式下的批改结果一致，"2/4"、"1'0/1"等未化简但数值正确的写法同样判为正确
+      标准答案字符串本身可以被parseAnswer解析为同一个值，直接比较相同时解析的结果也必然相同，不会改变判定结果
+     */
+    public boolean isCorrect(int i, String answerLine) {
+        String answer = answers[i];
+        if (answer == null) {
+            return false; // 习题无法计算，任何答案都判为错误
+        }
+        int start = ExpressionScanner.skipNumbering(answerLine, 0, answerLine.length());
+        if (start < 0) {
+            return false;
+        }
+        int from = ExpressionScanner.skipSpaces(answerLine, start, answerLine.length());
+        int to = ExpressionScanner.trimSpaces(answerLine, from, answerLine.length());
+        if (to - from == answer.length() && answerLine.regionMatches(from, answer, 0, answer.length())) {
+            return true;
+        }
+        ExpressionScanner scanner = SCANNERS.get();
+        return scanner.parseAnswer(answerLine, start, answerLine.length())
+                && scanner.numerator == numerators[i] && scanner.denominator == denominators[i];
+    }
+}
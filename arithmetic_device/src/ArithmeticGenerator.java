@@ -1,8 +1,11 @@
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 
 /*
   算术题生成器类，用于生成含整数和真分数的四则运算题（+、-、×、÷）
@@ -11,94 +14,332 @@ import java.util.*;
 public class ArithmeticGenerator {
     // 数值范围：生成的整数、分数分子/分母均不超过此范围（整数为0~range-1，分母为2~range）
     private final int range;
-    // 随机数生成器：用于随机生成操作符数量、数值、运算符
-    private final Random random = new Random();
+    // 支持的四则运算符（÷放在最后，便于在不允许除法时只从前三个中选择）
+    private static final char[] OPERATORS = {'+', '-', '×', '÷'};
+    // 随机数生成器：用于随机生成操作符数量、数值、运算符（指定种子时输出可复现）
+    private final Random random;
     // 存储已生成题目的规范化字符串：通过表达式等价性去重（如1+2与2+1视为同一题目）
     private final Set<String> generatedExpressions = new HashSet<>();
     // 习题与答案的输出目录路径：指定文件生成的位置
     private final String outputPath;
+    // 每道题的最大操作符数量：操作符数量在1~maxOperators中随机选取
+    private final int maxOperators;
+    // 格式化器：输出题目文本与规范化字符串，所有题目复用同一个实例及其StringBuilder
+    private final ExpressionFormatter formatter = new ExpressionFormatter();
+    // 构造表达式树的显式栈：每帧记录右子树的操作符数量（-1表示正在构造右子树），values存放已构造完成的子表达式
+    private int[] frameRightCounts = new int[16];
+    private int frameSize;
+    private Expression[] values = new Expression[16];
+    private int valueSize;
+    // 运行统计：候选题目、各类修正与重复的数量
+    private final Stats stats = new Stats();
+    // 历史题目索引：不为null时跳过以前的运行中出过的题目，并记录本次出的题目
+    private ProblemHistory history;
+    // 停滞检测窗口：每构造这么多个候选题目检查一次新题目的比例
+    private static final int STALL_WINDOW = 1 << 20;
+    // 停滞阈值：一个窗口内新题目少于窗口的1/STALL_RATIO时，认为不重复的题目已接近耗尽，停止生成
+    private static final int STALL_RATIO = 10000;
+    // 子表达式合成溢出时，改用新叶子节点作为右操作数的最多重试次数
+    private static final int OVERFLOW_RETRIES = 3;
 
-    // 构造算术题生成器
+    // 构造算术题生成器（每道题1~3个操作符）
     public ArithmeticGenerator(int range, String outputPath) {
+        this(range, outputPath, 3);
+    }
+
+    // 构造算术题生成器，指定每道题的最大操作符数量
+    public ArithmeticGenerator(int range, String outputPath, int maxOperators) {
+        this(range, outputPath, maxOperators, new Random());
+    }
+
+    // 构造算术题生成器，指定随机种子：相同的参数与种子生成完全相同的习题和答案
+    public ArithmeticGenerator(int range, String outputPath, int maxOperators, long seed) {
+        this(range, outputPath, maxOperators, new Random(seed));
+    }
+
+    private ArithmeticGenerator(int range, String outputPath, int maxOperators, Random random) {
         this.range = range; //数值范围，控制生成的整数、分数分子/分母的最大值
         this.outputPath = outputPath; //输出目录路径，习题和答案文件将保存到该目录下
+        this.maxOperators = maxOperators; //每道题的操作符数量为1~maxOperators
+        this.random = random;
+        stats.setMaxOperators(maxOperators);
     }
 
-    //核心方法：生成指定数量的算术题，并将习题和答案写入对应文件
+    //运行统计，生成过程中可由其他线程读取进度
+    public Stats stats() {
+        return stats;
+    }
+
+    //设置历史题目索引，随机出题时跳过其中记录的题目
+    public void setHistory(ProblemHistory history) {
+        this.history = history;
+    }
+
+    //核心方法：生成指定数量的算术题，并将习题和答案流式写入输出目录下的Exercises.txt和Answers.txt
     public void generate(int n) throws IOException {
-        List<String> exercises = new ArrayList<>(); // 存储最终的习题列表（带"="）
-        List<String> answers = new ArrayList<>();   // 存储对应习题的答案列表
-
-        // 循环生成题目，直到达到指定数量（过滤无效/重复题目）
-        while (exercises.size() < n) {
-            // 随机生成操作符数量（1~3个，对应2~4个操作数）
-            int operatorCount = random.nextInt(3) + 1;
-            // 递归生成表达式树（可能返回null，代表表达式不符合约束）
-            Expression expression = generateExpression(operatorCount);
-
-            if (expression != null) {
-                // 生成表达式的规范化字符串，用于判断是否重复
-                String canonicalString = expression.toCanonicalString();
-                // 若未重复，则添加到习题和答案列表
-                if (!generatedExpressions.contains(canonicalString)) {
-                    generatedExpressions.add(canonicalString);
-                    exercises.add(expression.toString() + " ="); // 习题格式："表达式 ="
-                    answers.add(expression.evaluate().toString()); // 答案为表达式计算结果
+        generate(n, false);
+    }
+
+    //生成指定数量的算术题，binary为true时同时写出二进制题库Exercises.bin
+    public void generate(int n, boolean binary) throws IOException {
+        try (StreamingWriter writer = StreamingWriter.open(outputPath);
+             ExerciseBankWriter bank = binary ? openBank() : null) {
+            generate(n, writer, bank);
+        }
+    }
+
+    //在输出目录下创建二进制题库Exercises.bin
+    public ExerciseBankWriter openBank() throws IOException {
+        return new ExerciseBankWriter(Paths.get(outputPath, "Exercises.bin").toString());
+    }
+
+    //生成指定数量的算术题，每生成一道不重复的题目就推送给输出器，不在内存中累积习题和答案
+    public void generate(int n, ExerciseWriter writer) throws IOException {
+        generate(n, writer, null);
+    }
+
+    //生成指定数量的算术题并推送给输出器，bank不为null时同时写入二进制题库
+    //新题目的比例长时间过低（数值范围内不重复的题目不足n道）时抛出IllegalStateException，已生成的题目保留在输出中
+    public void generate(int n, ExerciseWriter writer, ExerciseBankWriter bank) throws IOException {
+        int count = 0; // 已生成的不重复题目数量
+        int windowCandidates = 0; // 当前停滞检测窗口内的候选数量
+        int windowStart = 0;      // 当前窗口开始时已生成的题目数量
+
+        // 循环生成题目，直到达到指定数量（过滤重复题目）
+        while (count < n) {
+            // 随机生成操作符数量（1~maxOperators个，对应2~maxOperators+1个操作数）
+            int operatorCount = random.nextInt(maxOperators) + 1;
+            // 构造式生成表达式树（一定满足减法/除法约束，无需丢弃重来；只有值超出long范围时才丢弃）
+            Expression expression;
+            try {
+                expression = generateExpression(operatorCount);
+            } catch (ArithmeticException e) {
+                expression = null;
+            }
+
+            // 生成表达式的规范化字符串，用于判断是否重复；若未重复，则推送习题（"表达式 ="）和答案
+            String canonicalString = expression != null ? formatter.canonical(expression) : null;
+            stats.candidates.increment();
+            if (expression == null) {
+                stats.overflowCandidates.increment();
+            } else if (!generatedExpressions.add(canonicalString)) {
+                stats.duplicates.increment();
+            } else if (history != null && !history.add(ExerciseBank.fingerprint(canonicalString))) {
+                stats.historyDuplicates.increment(); // 以前的运行中出过的题目
+            } else {
+                count++;
+                emit(expression, canonicalString, writer, bank);
+            }
+
+            // 停滞检测：窗口内新题目过少时，继续生成几乎只会得到重复题目，提前结束而不是无限循环
+            if (++windowCandidates == STALL_WINDOW) {
+                if ((long) (count - windowStart) * STALL_RATIO < STALL_WINDOW) {
+                    throw new IllegalStateException("最近 " + STALL_WINDOW + " 道候选题目中只有 " + (count - windowStart)
+                            + " 道不重复，已生成 " + count + "/" + n + " 道，数值范围为 " + range + " 时不重复的题目可能不足");
                 }
+                windowCandidates = 0;
+                windowStart = count;
             }
         }
+    }
 
-        // 拼接习题和答案的完整文件路径（输出目录+文件名）
-        String exercisesPath = Paths.get(outputPath, "Exercises.txt").toString();
-        String answersPath = Paths.get(outputPath, "Answers.txt").toString();
+    //按编号区间出题：依次输出枚举编号为first ~ first+n-1的题目（编号从0开始），不同编号区间的题目互不重复，可用于分片出题
+    public void generateRange(ExpressionEnumerator enumerator, long first, int n, ExerciseWriter writer,
+                              ExerciseBankWriter bank) throws IOException {
+        for (long index = first; index < first + n; index++) {
+            Expression expression = enumerator.unrank(index);
+            stats.candidates.increment();
+            emit(expression, bank != null ? formatter.canonical(expression) : null, writer, bank);
+        }
+    }
 
-        // 将习题和答案写入对应文件
-        writeToFile(exercisesPath, exercises);
-        writeToFile(answersPath, answers);
+    //均匀抽样出题：用Floyd算法从全部不重复题目的编号中无放回地均匀抽取n个，打乱顺序后还原为题目
+    //每次抽取都命中一道新题，既不会生成无效表达式，也不会生成重复题目
+    public void generateUniform(ExpressionEnumerator enumerator, int n, ExerciseWriter writer,
+                                ExerciseBankWriter bank) throws IOException {
+        long total = enumerator.total();
+        if (n > total) {
+            throw new IllegalArgumentException("该数值范围内最多只有 " + total + " 道不重复的题目");
+        }
+        Set<Long> chosen = new HashSet<>();
+        long[] indices = new long[n];
+        int size = 0;
+        for (long j = total - n; j < total; j++) {
+            long t = random.nextLong(j + 1); // 在[0, j]中随机取一个编号，已被选中时改选j
+            long index = chosen.add(t) ? t : j;
+            chosen.add(index);
+            indices[size++] = index;
+        }
+        // Floyd算法得到的是均匀的子集，输出前再打乱一次顺序
+        for (int i = n - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            long temp = indices[i];
+            indices[i] = indices[k];
+            indices[k] = temp;
+        }
+        for (long index : indices) {
+            Expression expression = enumerator.unrank(index);
+            stats.candidates.increment();
+            emit(expression, bank != null ? formatter.canonical(expression) : null, writer, bank);
+        }
     }
 
-    //递归生成表达式树（内部核心方法）
-    private Expression generateExpression(int operatorCount) {
-        // 操作符数量为0时，生成叶子节点（仅包含一个数值，无操作符）
-        if (operatorCount == 0) {
-            return new Expression(generateNumber());
+    //输出一道题：习题（"表达式 ="）和答案推送给输出器，bank不为null时同时写入二进制题库
+    private void emit(Expression expression, String canonicalString, ExerciseWriter writer,
+                      ExerciseBankWriter bank) throws IOException {
+        writer.write(formatter.format(expression) + " =", expression.evaluate().toString());
+        if (bank != null) {
+            bank.write(expression, canonicalString);
         }
+        int operatorCount = countOperators(expression);
+        stats.operators.add(operatorCount);
+        stats.deepest.accumulate(operatorCount);
+        stats.problems.increment();
+    }
 
-        // 拆分操作符到左右子表达式：左子树随机分配0~operatorCount-1个操作符，右子树分配剩余
-        int leftOperatorCount = random.nextInt(operatorCount);
-        int rightOperatorCount = operatorCount - 1 - leftOperatorCount;
+    //表达式中的运算符数量：合成溢出时右子树被替换为叶子节点，实际数量可能少于生成时选取的数量
+    //显式栈遍历，借用构造用的values栈（只使用当前栈顶之上的部分，结束时恢复原状）
+    private int countOperators(Expression root) {
+        int base = valueSize;
+        int count = 0;
+        pushValue(root);
+        while (valueSize > base) {
+            Expression node = values[--valueSize];
+            values[valueSize] = null;
+            if (node.value == null) {
+                count++;
+                pushValue(node.left);
+                pushValue(node.right);
+            }
+        }
+        return count;
+    }
 
-        // 递归生成左右子表达式
-        Expression left = generateExpression(leftOperatorCount);
-        Expression right = generateExpression(rightOperatorCount);
+    /*
+      构造表达式树（内部核心方法）：用显式栈按后序构造，操作符数量可达数千而不会栈溢出
+      每个内部节点先随机拆分左右子树的操作符数量，依次构造左、右子树，再根据两个子表达式的值选择运算符和操作数顺序，
+      保证构造出的表达式一定满足约束；随机数的抽取顺序与递归构造相同
+      子表达式无法合成（结果超出long范围）时把右子树替换为叶子节点重试，仍然溢出时抛出ArithmeticException，由调用方丢弃该候选
+     */
+    private Expression generateExpression(int operatorCount) {
+        frameSize = 0;
+        valueSize = 0;
+        int pending = operatorCount; // 下一棵待构造子树的操作符数量
+        while (true) {
+            // 向下：为每个内部节点入栈一帧，随机拆分操作符到左右子树（左子树0~pending-1个），直到遇到叶子节点
+            while (pending > 0) {
+                int leftOperatorCount = random.nextInt(pending);
+                pushFrame(pending - 1 - leftOperatorCount);
+                pending = leftOperatorCount;
+            }
+            pushValue(new Expression(generateNumber())); // 操作符数量为0：生成叶子节点（仅包含一个数值）
 
-        // 若任一子表达式无效（返回null），当前表达式也无效
-        if (left == null || right == null) return null;
+            // 向上：左子树完成的帧转去构造右子树；右子树也完成的帧弹出两个子表达式，合成内部节点
+            while (true) {
+                if (frameSize == 0) {
+                    return values[--valueSize];
+                }
+                if (frameRightCounts[frameSize - 1] >= 0) {
+                    pending = frameRightCounts[frameSize - 1];
+                    frameRightCounts[frameSize - 1] = -1; // 标记为正在构造右子树
+                    break;
+                }
+                frameSize--;
+                Expression right = values[--valueSize];
+                Expression left = values[--valueSize];
+                values[valueSize] = null;
+                values[valueSize + 1] = null;
+                pushValue(combineOrReplace(left, right));
+            }
+        }
+    }
 
-        // 随机选择一个运算符（+、-、×、÷）
-        char op = getRandomOperator();
+    //由两个子表达式构造内部节点：根据子表达式的值选择运算符，并为减法/除法调整操作数顺序
+    //所选运算符的结果超出long范围时依次改用其他运算符，全部溢出时抛出ArithmeticException
+    private Expression combine(Expression left, Expression right) {
+        Fraction leftValue = left.evaluate();
+        Fraction rightValue = right.evaluate();
 
-        // 为不同运算符添加约束条件，确保题目符合常见算术逻辑
+        // 随机选择运算符：左右值均为0时不存在合法的除法，只在+、-、×中选择
+        int operatorCount = OPERATORS.length;
+        if (leftValue.numerator == 0 && rightValue.numerator == 0) {
+            stats.zeroDivisors.increment();
+            operatorCount--;
+        }
+        int first = random.nextInt(operatorCount);
+        for (int attempt = 0; attempt < operatorCount; attempt++) {
+            try {
+                return combine(left, right, leftValue, rightValue, OPERATORS[(first + attempt) % operatorCount]);
+            } catch (ArithmeticException e) {
+                stats.overflows.increment(); // 结果超出long范围，改用下一个运算符
+            }
+        }
+        throw new ArithmeticException("子表达式的值过大，任何运算符的结果都超出long范围");
+    }
+
+    //合成内部节点；左右子表达式的值都很大、任何运算符都会溢出时，丢弃右子树改用新的叶子节点重试，
+    //使操作符较多的题目只损失溢出处的一棵子树，而不必整道题丢弃；重试仍溢出时抛出ArithmeticException
+    private Expression combineOrReplace(Expression left, Expression right) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return combine(left, right);
+            } catch (ArithmeticException e) {
+                if (attempt == OVERFLOW_RETRIES) {
+                    throw e;
+                }
+                stats.overflowReplacements.increment();
+                right = new Expression(generateNumber());
+            }
+        }
+    }
+
+    //按指定运算符构造内部节点并计算其值（结果缓存在节点上）
+    private Expression combine(Expression left, Expression right, Fraction leftValue, Fraction rightValue, char op) {
+        // 为不同运算符调整操作数顺序，确保题目符合常见算术逻辑
         if (op == '-') {
-            // 减法约束：确保结果非负（小学算术题常见要求）
-            if (left.evaluate().compareTo(right.evaluate()) < 0) {
-                // 若左值 < 右值，交换左右子表达式，保证结果≥0
+            // 减法约束：确保结果非负（小学算术题常见要求），若左值 < 右值则交换左右子表达式
+            if (leftValue.compareTo(rightValue) < 0) {
                 Expression temp = left;
                 left = right;
                 right = temp;
             }
         } else if (op == '÷') {
             // 除法约束：1. 除数不能为0；2. 结果为真分数或整数（控制题目难度）
-            if (right.evaluate().numerator == 0) return null; // 除数为0，表达式无效
-            Fraction result = left.evaluate().divide(right.evaluate());
-            // 若结果是带分数（非真分数且非整数），表达式无效
-            if (!result.isProperFraction() && result.denominator != 1) {
-                return null;
+            // 所有子表达式的值均非负，left÷right不合法时只有两种情况：除数为0（此时左值非0），
+            // 或left > right > 0得到带分数，两种情况下交换后的right÷left都必然合法
+            if (!isValidQuotient(leftValue, rightValue)) {
+                (rightValue.numerator == 0 ? stats.zeroDivisors : stats.mixedQuotients).increment();
+                Expression temp = left;
+                left = right;
+                right = temp;
             }
         }
 
-        // 生成并返回当前内部节点（包含左右子表达式和运算符）
-        return new Expression(left, right, op);
+        // 生成当前内部节点（包含左右子表达式和运算符），并计算其值
+        Expression node = new Expression(left, right, op);
+        node.evaluate();
+        return node;
+    }
+
+    private void pushFrame(int rightOperatorCount) {
+        if (frameSize == frameRightCounts.length) {
+            frameRightCounts = Arrays.copyOf(frameRightCounts, frameSize * 2);
+        }
+        frameRightCounts[frameSize++] = rightOperatorCount;
+    }
+
+    private void pushValue(Expression expression) {
+        if (valueSize == values.length) {
+            values = Arrays.copyOf(values, valueSize * 2);
+        }
+        values[valueSize++] = expression;
+    }
+
+    //判断dividend÷divisor是否满足除法约束：除数非0，且结果为真分数或整数
+    private boolean isValidQuotient(Fraction dividend, Fraction divisor) {
+        if (divisor.numerator == 0) return false;
+        Fraction result = dividend.divide(divisor);
+        return result.isProperFraction() || result.denominator == 1;
     }
 
     //生成随机数值（整数或真分数）
@@ -114,32 +355,18 @@ public class ArithmeticGenerator {
         }
     }
 
-   //随机获取一个运算符（+、-、×、÷）
-    private char getRandomOperator() {
-        char[] ops = {'+', '-', '×', '÷'}; // 支持的四则运算符
-        return ops[random.nextInt(ops.length)]; // 随机选择一个运算符
-    }
-
-    //将列表内容按序号写入指定文件（格式：1. 内容，2. 内容...）
-    private void writeToFile(String filename, List<String> lines) throws IOException {
-        // try-with-resources语法：自动关闭BufferedWriter，避免资源泄漏
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            for (int i = 0; i < lines.size(); i++) {
-                // 按"序号. 内容"格式写入（序号从1开始，符合题目编号习惯）
-                writer.write((i + 1) + ". " + lines.get(i));
-                writer.newLine(); // 换行，确保每道题/答案占一行
-            }
-        }
-    }
-
     /*
-      内部类：表达式树节点，用于递归表示算术表达式的结构
+      内部类：表达式树节点，用于表示算术表达式的结构
       支持两种节点类型：叶子节点（仅数值）、内部节点（含左右子表达式+运算符）
+      求值与格式化均使用显式栈，表达式深度不受调用栈限制
      */
-    private static class Expression {
+    static class Expression {
         Expression left, right; // 左右子表达式（内部节点非null，叶子节点为null）
         char operator;          // 运算符（内部节点非0，叶子节点为0），取值：+、-、×、÷
         Fraction value;         // 数值（叶子节点非null，内部节点为null）
+        Fraction result;        // 缓存的计算结果（生成时需要反复读取子表达式的值，避免重复计算）
+        String text;            // 缓存的叶子节点数值文本
+        byte canonicalOrder;    // 缓存的规范化顺序（由ExpressionFormatter计算，见ExpressionFormatter.ORDER_*）
 
         //构造叶子节点（仅包含数值，无操作符）
 
@@ -155,17 +382,40 @@ public class ArithmeticGenerator {
             this.operator = operator;//运算符
         }
 
-        //递归计算表达式的值
+        //计算表达式的值（显式栈后序遍历，不递归；结果缓存在节点上，每个节点只计算一次），结果超出long范围时抛出ArithmeticException
         Fraction evaluate() {
             // 叶子节点：直接返回自身存储的数值
             if (value != null) {
                 return value;
             }
-            // 内部节点：先计算左右子表达式的值，再执行当前运算符的运算
-            Fraction leftVal = left.evaluate();
-            Fraction rightVal = right.evaluate();
+            if (result != null) {
+                return result;
+            }
+            // 左右子表达式的值都已知（生成时自底向上构造即是如此）：直接计算，不必遍历
+            if ((left.value != null || left.result != null) && (right.value != null || right.result != null)) {
+                result = apply(left.evaluate(), operator, right.evaluate());
+                return result;
+            }
+            Deque<Expression> stack = new ArrayDeque<>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                Expression node = stack.peek();
+                // 先计算尚未求值的子表达式，左右子表达式的值都已知后再执行当前运算符的运算
+                if (node.left.value == null && node.left.result == null) {
+                    stack.push(node.left);
+                } else if (node.right.value == null && node.right.result == null) {
+                    stack.push(node.right);
+                } else {
+                    node.result = apply(node.left.evaluate(), node.operator, node.right.evaluate());
+                    stack.pop();
+                }
+            }
+            return result;
+        }
+
+        private static Fraction apply(Fraction leftVal, char operator, Fraction rightVal) {
             switch (operator) {
-                case '+': return leftVal.add(rightVal);    // 加法运算
+                case '+': return leftVal.add(rightVal);      // 加法运算
                 case '-': return leftVal.subtract(rightVal); // 减法运算
                 case '×': return leftVal.multiply(rightVal); // 乘法运算
                 case '÷': return leftVal.divide(rightVal);   // 除法运算
@@ -173,66 +423,30 @@ public class ArithmeticGenerator {
             }
         }
 
-        //生成表达式的字符串表示（自动添加必要括号，避免运算顺序歧义）
-        @Override
-        public String toString() {
-            // 叶子节点：直接返回数值的字符串形式（如"3"、"1/2"）
-            if (value != null) {
-                return value.toString();
-            }
-            // 内部节点：先获取左右子表达式的字符串
-            String leftStr = left.toString();
-            String rightStr = right.toString();
-
-            // 左子表达式优先级低于当前运算符：需加括号（避免运算顺序错误）
-            if (left.operator != 0 && precedence(this.operator) > precedence(left.operator)) {
-                leftStr = "( " + leftStr + " )";
-            }
-            // 右子表达式优先级低于或等于当前运算符：需加括号（减法/除法不满足交换律，需严格控制顺序）
-            if (right.operator != 0 && precedence(this.operator) >= precedence(right.operator)) {
-                rightStr = "( " + rightStr + " )";
+        //叶子节点数值的文本（缓存，格式化时反复读取）
+        String text() {
+            if (text == null) {
+                text = value.toString();
             }
+            return text;
+        }
 
-            // 拼接成"左表达式 运算符 右表达式"格式
-            return leftStr + " " + operator + " " + rightStr;
+        /*
+          生成表达式的字符串表示（自动添加必要括号，避免运算顺序歧义），见ExpressionFormatter.format
+          每次调用创建新的格式化器，仅供调试与零星调用；批量格式化时应复用同一个ExpressionFormatter
+         */
+        @Override
+        public String toString() {
+            return new ExpressionFormatter().format(this);
         }
 
         /*
-          生成表达式的规范化字符串（用于题目去重）
+          生成表达式的规范化字符串（用于题目去重），见ExpressionFormatter.canonical
           核心逻辑：利用加法/乘法交换律，统一操作数顺序（如1+2与2+1生成同一字符串）
+          与toString相同，批量规范化时应复用同一个ExpressionFormatter
          */
         public String toCanonicalString() {
-            // 叶子节点：直接返回数值字符串
-            if (value != null) {
-                return value.toString();
-            }
-            // 获取左右子表达式的规范化字符串
-            String leftStr = left.toCanonicalString();
-            String rightStr = right.toCanonicalString();
-
-            // 加法（+）和乘法（×）满足交换律：按字典序排序操作数，避免等价表达式被判定为不同
-            if ((operator == '+' || operator == '×') && leftStr.compareTo(rightStr) > 0) {
-                String temp = leftStr;
-                leftStr = rightStr;
-                rightStr = temp;
-            }
-
-            // 用括号包裹，确保表达式结构唯一（如"(1+2)×3"与"1+(2×3)"区分）
-            return "(" + leftStr + operator + rightStr + ")";
-        }
-
-        //获取运算符优先级（用于判断是否需要添加括号）
-        private int precedence(char op) {
-            switch (op) {
-                case '+':
-                case '-':
-                    return 1; // 加减优先级低于乘除
-                case '×':
-                case '÷':
-                    return 2; // 乘除优先级高于加减
-                default:
-                    return 0; // 数值节点无优先级
-            }
+            return new ExpressionFormatter().canonical(this);
         }
     }
 }
\ No newline at end of file
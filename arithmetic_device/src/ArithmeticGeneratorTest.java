@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArithmeticGeneratorTest {
+
+    private static List<String> generate(Path directory, int range, int maxOperators, long seed, int n) throws IOException {
+        new ArithmeticGenerator(range, directory.toString(), maxOperators, seed).generate(n);
+        List<String> lines = Files.readAllLines(directory.resolve("Exercises.txt"), StreamingWriter.CHARSET);
+        lines.addAll(Files.readAllLines(directory.resolve("Answers.txt"), StreamingWriter.CHARSET));
+        return lines;
+    }
+
+    //习题行与答案行（以\n连接）的SHA-256，与平台换行符无关
+    private static String sha256(List<String> lines) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String line : lines) {
+            digest.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // 1. 构造出的每道题都满足约束：1~3个运算符，各子表达式的值非负，除法的结果为真分数或整数，题目互不重复
+    @Test
+    void testConstructedExpressionsSatisfyConstraints(@TempDir Path directory) throws IOException {
+        List<String> lines = generate(directory, 10, 3, 3, 2000);
+        ExpressionFormatter formatter = new ExpressionFormatter();
+        Set<String> canonical = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            String exercise = lines.get(i);
+            ArithmeticGenerator.Expression root = ExerciseBank.parse(
+                    exercise.substring(ExpressionScanner.skipNumbering(exercise, 0, exercise.length())));
+            assertNotNull(root, exercise);
+            assertTrue(canonical.add(formatter.canonical(root)), "重复的题目: " + exercise);
+            int operators = 0;
+            Deque<ArithmeticGenerator.Expression> pending = new ArrayDeque<>(List.of(root));
+            while (!pending.isEmpty()) {
+                ArithmeticGenerator.Expression node = pending.pop();
+                assertFalse(node.evaluate().isNegative(), "子表达式的值为负: " + exercise);
+                if (node.operator == 0) {
+                    continue;
+                }
+                operators++;
+                if (node.operator == '÷') {
+                    Fraction quotient = node.evaluate();
+                    assertTrue(quotient.isProperFraction() || quotient.denominator == 1, "除法结果为带分数: " + exercise);
+                }
+                pending.push(node.left);
+                pending.push(node.right);
+            }
+            assertTrue(operators >= 1 && operators <= 3, exercise);
+            assertEquals(root.evaluate().toString(), lines.get(2000 + i).substring(lines.get(2000 + i).indexOf(' ') + 1));
+        }
+    }
+
+    // 2. 相同的参数与种子生成完全相同的题目，不同的种子生成不同的题目
+    @Test
+    void testSeedIsReproducible(@TempDir Path directory) throws IOException {
+        Path first = Files.createDirectory(directory.resolve("first"));
+        Path second = Files.createDirectory(directory.resolve("second"));
+        Path other = Files.createDirectory(directory.resolve("other"));
+        assertEquals(generate(first, 10, 3, 42, 500), generate(second, 10, 3, 42, 500));
+        assertNotEquals(generate(first, 10, 3, 42, 500), generate(other, 10, 3, 43, 500));
+    }
+
+    // 3. 固定种子下默认深度的输出与改用显式栈求值、格式化之前的实现逐字节相同（摘要取自旧实现的输出）
+    @Test
+    void testSeededOutputMatchesRecursiveImplementation(@TempDir Path directory) throws Exception {
+        List<String> lines = generate(directory, 10, 3, 42, 1000);
+        assertEquals("1. 4 - ( 5 - ( 3 - 2 ) ) =", lines.get(0));
+        assertEquals("1. 0", lines.get(1000));
+        assertEquals("8e73512109f691b4de493ed5b94053a15b9f865686427cb5c6722008c14acd4d", sha256(lines));
+    }
+
+    // 4. 深层表达式：扫描器与Fraction按相同规则求值，生成的每道题都能被批改为正确
+    @Test
+    void testDeepExpressionsGradeCorrectly(@TempDir Path directory) throws IOException {
+        List<String> lines = generate(directory, 3, 2000, 7, 50);
+        ExpressionScanner scanner = new ExpressionScanner();
+        ExpressionFormatter formatter = new ExpressionFormatter();
+        int maxLength = 0;
+        for (int i = 0; i < 50; i++) {
+            String exercise = lines.get(i);
+            assertTrue(scanner.isCorrect(exercise, lines.get(50 + i)), "第 " + (i + 1) + " 题应批改为正确");
+            String infix = exercise.substring(ExpressionScanner.skipNumbering(exercise, 0, exercise.length()));
+            ArithmeticGenerator.Expression expression = ExerciseBank.parse(infix);
+            assertEquals((i + 1) + ". " + formatter.format(expression) + " =", exercise);
+            maxLength = Math.max(maxLength, exercise.length());
+        }
+        assertTrue(maxLength > 1000, "应生成含数百个操作符的深层题目");
+    }
+
+    // 4.1 数值范围较大时合成溢出处的子树被替换，题目明显短于-m：统计中记录实际的运算符数量并给出提示；-r较小时不提示
+    @Test
+    void testOperatorWarningWhenRangeLimitsDepth(@TempDir Path directory) throws IOException {
+        ArithmeticGenerator wide = new ArithmeticGenerator(100, directory.toString(), 500, 7);
+        wide.generate(50);
+        Stats stats = wide.stats();
+        assertEquals(50, stats.problems.sum());
+        assertTrue(stats.meanOperators() < 250.5 / 2, "平均运算符数量: " + stats.meanOperators());
+        assertTrue(stats.deepest.get() < 500);
+        assertNotNull(stats.operatorWarning());
+
+        ArithmeticGenerator narrow = new ArithmeticGenerator(3, directory.toString(), 500, 7);
+        narrow.generate(50);
+        assertNull(narrow.stats().operatorWarning(), narrow.stats().operatorWarning());
+        assertTrue(narrow.stats().meanOperators() > 250.5 / 2);
+    }
+
+    // 5. 运算结果超出long范围的表达式：Fraction抛出ArithmeticException，扫描器判定为无法计算
+    @Test
+    void testOverflowingExpressionsAgree() {
+        String[] expressions = {"9223372036854775807 + 1", "4294967296 × 4294967296", "1 ÷ ( 1 - 1 )",
+                "3037000499 × 3037000499 × 2", "1/9223372036854775807 + 1/9223372036854775806"};
+        ExpressionScanner scanner = new ExpressionScanner();
+        for (String expression : expressions) {
+            ArithmeticGenerator.Expression tree = ExerciseBank.parse(expression);
+            assertNotNull(tree, expression);
+            assertThrows(ArithmeticException.class, tree::evaluate, expression);
+            assertFalse(scanner.evaluate(expression, 0, expression.length()), expression);
+        }
+        String fits = "9223372036854775807 ÷ 3 × 3 - 1";
+        assertTrue(scanner.evaluate(fits, 0, fits.length()));
+        assertEquals(new Fraction(scanner.numerator, scanner.denominator), ExerciseBank.parse(fits).evaluate());
+    }
+}
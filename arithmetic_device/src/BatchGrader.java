@@ -0,0 +1,143 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+  批量批改器：用同一份习题文件批改整个班级的答卷
+  习题只计算一次生成标准答案表（AnswerKey，习题文件为二进制题库时直接读取其中的答案），随后在线程池中并行批改答案目录下的每一份答卷（*.txt），
+  每位学生生成一份评分文件"<答卷文件名>_Grade.txt"（格式与Grade.txt一致），另生成逐题统计文件Summary.txt
+ */
+public class BatchGrader {
+    // 每位学生评分文件名的后缀，以及逐题统计文件名
+    private static final String GRADE_SUFFIX = "_Grade.txt";
+    private static final String SUMMARY_FILE = "Summary.txt";
+
+    private final String outputPath; // 评分文件与统计文件的输出目录
+    private final int threads;       // 并行批改的线程数
+    private final boolean compressRanges; // 是否在评分文件中把连续的题号压缩为区间
+    private final Stats stats = new Stats(); // 运行统计：全部答卷的已批改行数与对错数量
+
+    //构造批量批改器：指定输出目录、线程数以及是否压缩连续题号
+    public BatchGrader(String outputPath, int threads, boolean compressRanges) {
+        this.outputPath = outputPath;
+        this.threads = threads;
+        this.compressRanges = compressRanges;
+    }
+
+    //运行统计：全部答卷的已批改行数与对错数量，批改过程中可由其他线程读取进度
+    public Stats stats() {
+        return stats;
+    }
+
+    //核心批改方法：计算习题文件的标准答案，并行批改答案目录下的所有答卷
+    public void grade(String exerciseFile, String answerDirectory) throws IOException {
+        AnswerKey key = AnswerKey.load(exerciseFile);
+        File[] answerFiles = listAnswerFiles(exerciseFile, answerDirectory);
+
+        AtomicIntegerArray correctCounts = new AtomicIntegerArray(key.size()); // 每道题答对的人数
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (File answerFile : answerFiles) {
+                futures.add(pool.submit(() -> {
+                    gradeStudent(key, answerFile, correctCounts);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                await(future);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        writeSummary(key, answerFiles.length, correctCounts);
+    }
+
+    /*
+      列出答案目录下的答卷（*.txt，按文件名排序），不包括放在同一目录下的习题文件；
+      输出目录就是答案目录时，也不包括以前运行写出的评分文件（*_Grade.txt）与统计文件，避免把它们当作学生答卷批改
+     */
+    private File[] listAnswerFiles(String exerciseFile, String answerDirectory) throws IOException {
+        File directory = new File(answerDirectory);
+        File[] files = directory.listFiles(file -> file.isFile() && file.getName().endsWith(".txt"));
+        if (files == null) {
+            throw new IOException("答案目录不存在或无法读取: " + answerDirectory);
+        }
+        File exercises = new File(exerciseFile).getCanonicalFile();
+        boolean sameDirectory = directory.getCanonicalFile().equals(new File(outputPath).getCanonicalFile());
+        List<File> answerFiles = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (file.getCanonicalFile().equals(exercises)
+                    || (sameDirectory && (name.endsWith(GRADE_SUFFIX) || name.equals(SUMMARY_FILE)))) {
+                continue;
+            }
+            answerFiles.add(file);
+        }
+        File[] sorted = answerFiles.toArray(new File[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    //批改一位学生的答卷：逐行与标准答案比对，写出该学生的评分文件，并累加逐题答对人数
+    private void gradeStudent(AnswerKey key, File answerFile, AtomicIntegerArray correctCounts) throws IOException {
+        GradeResult result = new GradeResult(); // 按顺序记录每道题的对错（每题1位）
+        try (BufferedReader reader = new BufferedReader(new FileReader(answerFile, StreamingWriter.CHARSET))) {
+            String line;
+            for (int i = 0; i < key.size() && (line = reader.readLine()) != null; i++) {
+                boolean isCorrect = key.isCorrect(i, line);
+                result.add(isCorrect);
+                if (isCorrect) {
+                    correctCounts.incrementAndGet(i);
+                }
+                stats.lines.increment();
+            }
+        }
+        stats.correct.add(result.correctCount());
+        stats.wrong.add(result.wrongCount());
+        String name = answerFile.getName();
+        String gradeFileName = name.substring(0, name.length() - ".txt".length()) + GRADE_SUFFIX;
+        result.write(Paths.get(outputPath, gradeFileName).toString(), compressRanges);
+    }
+
+    //生成逐题统计文件：每行"序号. Correct: 答对人数 Wrong: 答错人数"，未作答也计为答错
+    private void writeSummary(AnswerKey key, int students, AtomicIntegerArray correctCounts) throws IOException {
+        String summaryPath = Paths.get(outputPath, SUMMARY_FILE).toString();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(summaryPath))) {
+            writer.write("Students: " + students);
+            writer.newLine();
+            for (int i = 0; i < key.size(); i++) {
+                int correct = correctCounts.get(i);
+                writer.write((i + 1) + ". Correct: " + correct + " Wrong: " + (students - correct));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待批改任务时被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("批改任务失败", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchGraderTest {
+    private static final List<String> EXERCISES = List.of("1. 1/2 + 1 =", "2. 1 - 1/2 - 1 =", "3. 3 × 1/4 =", "4. 1 ÷ 0 =");
+
+    private static void write(Path file, String... lines) throws IOException {
+        Files.write(file, List.of(lines), StreamingWriter.CHARSET);
+    }
+
+    // 1. 批量批改与单份批改使用同一个答案解析器：各种写法的判定结果一致
+    @Test
+    void testSameParserAsSingleGrading() throws IOException {
+        AnswerKey key = AnswerKey.read(new BufferedReader(new StringReader(String.join("\n", EXERCISES))));
+        ExpressionScanner scanner = new ExpressionScanner();
+        String[][] answers = {
+                {"1. 1'1/2", "1. 3/2", "1. 6/4", "1.  1'1/2\t", "1. 1'1/2\r", "1. 1'1/2 x", "1. 1'1/22", "1. +3", "1. 1'1/2'3/4", "1. 1 ' 1/2", "1. 1'1/2x"},
+                {"2. -1/2", "2. -1/2 ", "2. -0'1/2", "2. -1'1/2", "2. - 1/2", "2. 0"},
+                {"3. 3/4", "3. 0'3/4", "3. 6/8", "3. 3/0", "3. 99999999999999999999/4"},
+                {"4. 0", "4. 1/0", "4. "},
+        };
+        for (int i = 0; i < answers.length; i++) {
+            for (String answer : answers[i]) {
+                assertEquals(scanner.isCorrect(EXERCISES.get(i), answer), key.isCorrect(i, answer),
+                        "两种批改方式对 \"" + answer + "\" 的判定不一致");
+            }
+        }
+        assertTrue(key.isCorrect(0, "1. 6/4"), "未化简但数值正确的答案应判为正确");
+        assertFalse(key.isCorrect(0, "1. +3"));
+    }
+
+    // 2. 输出目录就是答案目录时，再次运行不会把上次的评分文件、统计文件和习题文件当作学生答卷
+    @Test
+    void testRerunIntoAnswerDirectory(@TempDir Path directory) throws IOException {
+        Path exercises = directory.resolve("Exercises.txt");
+        Files.write(exercises, EXERCISES, StreamingWriter.CHARSET);
+        write(directory.resolve("alice.txt"), "1. 1'1/2", "2. 0", "3. 3/4");
+        write(directory.resolve("bob.txt"), "1. 3/2", "2. 1/2");
+        for (int run = 0; run < 2; run++) {
+            new BatchGrader(directory.toString(), 2, false).grade(exercises.toString(), directory.toString());
+            List<String> summary = Files.readAllLines(directory.resolve("Summary.txt"));
+            assertEquals("Students: 2", summary.get(0), "第 " + (run + 1) + " 次运行的答卷数量");
+            assertEquals("1. Correct: 2 Wrong: 0", summary.get(1));
+        }
+        assertFalse(Files.exists(directory.resolve("alice_Grade_Grade.txt")));
+        assertFalse(Files.exists(directory.resolve("Exercises_Grade.txt")));
+        assertEquals("Correct: 2 (1, 3)", Files.readAllLines(directory.resolve("alice_Grade.txt")).get(0));
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+  二进制题库（Exercises.bin）：Exercises.txt的紧凑二进制形式，读取时只需内存映射并顺序扫描，无需重新解析文本
+  文件格式（多字节整数均为大端序）：
+    文件头：魔数"ABNK"(4字节) | 版本号(4字节) | 题目数量(8字节) | 偏移索引的起始偏移(8字节)
+    题目记录：答案分子(ZigZag变长整数) | 答案分母(变长整数) | 指纹(8字节) | 后缀操作码序列 | OP_END
+      后缀操作码：OP_PUSH后跟操作数的分子(ZigZag变长整数)与分母(变长整数)，或OP_ADD/OP_SUB/OP_MUL/OP_DIV
+    偏移索引：每道题记录的起始偏移（8字节），用于按题号随机访问
+  指纹为表达式规范化字符串的64位FNV-1a哈希，可用于不解析表达式的快速去重
+ */
+public class ExerciseBank implements Closeable {
+    static final int MAGIC = 0x41424E4B; // "ABNK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    // 后缀操作码
+    static final int OP_END = 0;
+    static final int OP_PUSH = 1;
+    static final int OP_ADD = 2;
+    static final int OP_SUB = 3;
+    static final int OP_MUL = 4;
+    static final int OP_DIV = 5;
+    // 每个映射分段的大小：文件超过2GB时分多段映射
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long count;       // 题目数量
+    private final long indexOffset; // 偏移索引的起始偏移
+
+    private ExerciseBank(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        int segmentCount = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << SEGMENT_SHIFT, size - start));
+        }
+        if (size < HEADER_SIZE || readInt(0) != MAGIC) {
+            throw new IOException("不是有效的二进制题库文件");
+        }
+        if (readInt(4) != VERSION) {
+            throw new IOException("不支持的题库版本: " + readInt(4));
+        }
+        this.count = readLong(8);
+        this.indexOffset = readLong(16);
+    }
+
+    //内存映射打开二进制题库
+    public static ExerciseBank open(String bankFile) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(bankFile), StandardOpenOption.READ);
+        try {
+            return new ExerciseBank(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //根据文件开头的魔数判断是否为二进制题库
+    public static boolean isBank(String file) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            byte[] magic = new byte[4];
+            return in.read(magic) == 4
+                    && ((magic[0] & 0xFF) << 24 | (magic[1] & 0xFF) << 16 | (magic[2] & 0xFF) << 8 | (magic[3] & 0xFF)) == MAGIC;
+        }
+    }
+
+    //题目数量
+    public long count() {
+        return count;
+    }
+
+    //创建读取游标，每个线程应各自创建
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    //表达式规范化字符串的64位FNV-1a指纹
+    public static long fingerprint(CharSequence canonical) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < canonical.length(); i++) {
+            hash ^= canonical.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static int opcode(char operator) {
+        switch (operator) {
+            case '+': return OP_ADD;
+            case '-': return OP_SUB;
+            case '×': return OP_MUL;
+            case '÷': return OP_DIV;
+            default: throw new IllegalArgumentException("未知运算符: " + operator);
+        }
+    }
+
+    private static char operator(int opcode) {
+        switch (opcode) {
+            case OP_ADD: return '+';
+            case OP_SUB: return '-';
+            case OP_MUL: return '×';
+            case OP_DIV: return '÷';
+            default: throw new IllegalStateException("未知操作码: " + opcode);
+        }
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private int readInt(long position) {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (byteAt(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private long readLong(long position) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (byteAt(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /*
+      读取游标：定位到某道题后读取其答案与指纹，需要时再读取表达式
+      答案与指纹位于记录开头，批改时无需读取操作码序列
+     */
+    public class Cursor {
+        long answerNumerator;   // 当前题目答案的分子
+        long answerDenominator; // 当前题目答案的分母
+        long fingerprint;       // 当前题目的指纹
+        private long position;  // 当前读取位置（seek后指向操作码序列的开头）
+
+        //定位到第i题（从0开始），读取答案与指纹
+        public void seek(long i) {
+            position = readLong(indexOffset + i * Long.BYTES);
+            answerNumerator = unZigZag(readVarLong());
+            answerDenominator = readVarLong();
+            fingerprint = readLong(position);
+            position += Long.BYTES;
+        }
+
+        //当前题目的答案
+        public Fraction answer() {
+            return new Fraction(answerNumerator, answerDenominator);
+        }
+
+        //读取当前题目的操作码序列，用显式栈还原为表达式树
+        public ArithmeticGenerator.Expression expression() {
+            Deque<ArithmeticGenerator.Expression> stack = new ArrayDeque<>();
+            int op;
+            while ((op = byteAt(position++)) != OP_END) {
+                if (op == OP_PUSH) {
+                    long numerator = unZigZag(readVarLong());
+                    stack.push(new ArithmeticGenerator.Expression(new Fraction(numerator, readVarLong())));
+                } else {
+                    ArithmeticGenerator.Expression right = stack.pop();
+                    ArithmeticGenerator.Expression left = stack.pop();
+                    stack.push(new ArithmeticGenerator.Expression(left, right, operator(op)));
+                }
+            }
+            return stack.pop();
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = byteAt(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    //转换工具：将文本习题文件（"序号. 表达式 ="）转换为二进制题库
+    public static void fromText(String exerciseFile, String bankFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(exerciseFile, StreamingWriter.CHARSET));
+             ExerciseBankWriter writer = new ExerciseBankWriter(bankFile)) {
+            ExpressionFormatter formatter = new ExpressionFormatter(); // 所有习题复用同一个格式化器
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int start = ExpressionScanner.skipNumbering(line, 0, line.length());
+                ArithmeticGenerator.Expression expression = start < 0 ? null : parse(line.substring(start));
+                try {
+                    if (expression != null) {
+                        writer.write(expression, formatter.canonical(expression));
+                        continue;
+                    }
+                } catch (ArithmeticException e) {
+                    // 除数为0等无法计算的习题，与格式错误一样视为无效
+                }
+                throw new IOException("第 " + lineNumber + " 行不是有效的习题: " + line);
+            }
+        }
+    }
+
+    //转换工具：将二进制题库还原为输出目录下的Exercises.txt与Answers.txt
+    public static void toText(String bankFile, String outputPath) throws IOException {
+        try (ExerciseBank bank = open(bankFile);
+             StreamingWriter writer = StreamingWriter.open(outputPath)) {
+            Cursor cursor = bank.cursor();
+            ExpressionFormatter formatter = new ExpressionFormatter(); // 所有习题复用同一个格式化器
+            for (long i = 0; i < bank.count(); i++) {
+                cursor.seek(i);
+                writer.write(formatter.format(cursor.expression()) + " =", cursor.answer().toString());
+            }
+        }
+    }
+
+    /*
+      将中缀表达式文本（遇到"="或文本末尾结束）解析为表达式树，格式错误时返回null
+      逐字符扫描，与ExpressionScanner.evaluate的规则完全相同：同一个操作数解析器（只接受ASCII数字）、同样的空白字符与运算符优先级，
+      因此一道习题能转换为题库当且仅当能从文本批改；按生成器添加括号的规则解析，可精确还原生成器输出的表达式树
+     */
+    static ArithmeticGenerator.Expression parse(String text) {
+        ExpressionScanner scanner = new ExpressionScanner();
+        Deque<ArithmeticGenerator.Expression> values = new ArrayDeque<>();
+        Deque<Character> ops = new ArrayDeque<>();
+        int i = 0;
+        int to = text.length();
+        boolean expectOperand = true; // 当前位置期望操作数（或左括号）还是运算符（或右括号）
+        try {
+            while (true) {
+                i = ExpressionScanner.skipSpaces(text, i, to);
+                if (i >= to || text.charAt(i) == '=') {
+                    break;
+                }
+                char c = text.charAt(i);
+                if (expectOperand) {
+                    if (c == '(') {
+                        ops.push('(');
+                        i++;
+                    } else if ((i = scanner.parseOperand(text, i, to)) >= 0) {
+                        values.push(new ArithmeticGenerator.Expression(new Fraction(scanner.numerator, scanner.denominator)));
+                        expectOperand = false;
+                    } else {
+                        return null;
+                    }
+                } else if (c == ')') {
+                    while (!ops.isEmpty() && ops.peek() != '(') {
+                        reduce(values, ops.pop());
+                    }
+                    if (ops.isEmpty()) return null; // 括号不匹配
+                    ops.pop();
+                    i++;
+                } else if (ExpressionScanner.precedence(c) > 0) {
+                    while (!ops.isEmpty() && ExpressionScanner.precedence(ops.peek()) >= ExpressionScanner.precedence(c)) {
+                        reduce(values, ops.pop());
+                    }
+                    ops.push(c);
+                    i++;
+                    expectOperand = true;
+                } else {
+                    return null;
+                }
+            }
+            if (expectOperand) {
+                return null; // 空表达式或以运算符结尾
+            }
+            while (!ops.isEmpty()) {
+                char op = ops.pop();
+                if (op == '(') return null; // 括号不匹配
+                reduce(values, op);
+            }
+            return values.size() == 1 ? values.pop() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void reduce(Deque<ArithmeticGenerator.Expression> values, char op) {
+        ArithmeticGenerator.Expression right = values.pop();
+        ArithmeticGenerator.Expression left = values.pop();
+        values.push(new ArithmeticGenerator.Expression(left, right, op));
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExerciseBankTest {
+    // 变长整数的各个字节边界（7、14、63位）以及正负两侧的极值
+    private static final long[] NUMERATORS = {0, 1, -1, 63, -64, 64, -65, 127, 128, 16383, 16384,
+            Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE / 3, -(Long.MAX_VALUE / 3)};
+
+    // 1. 变长整数与ZigZag编码往返：答案、操作数与指纹按原值读回
+    @Test
+    void testVarintAndZigZagRoundTrip(@TempDir Path directory) throws IOException {
+        String bankFile = directory.resolve("Exercises.bin").toString();
+        try (ExerciseBankWriter writer = new ExerciseBankWriter(bankFile)) {
+            for (long numerator : NUMERATORS) {
+                ArithmeticGenerator.Expression leaf = new ArithmeticGenerator.Expression(new Fraction(numerator, 1));
+                writer.write(leaf, "leaf " + numerator);
+            }
+            writer.write(new ArithmeticGenerator.Expression(new Fraction(1, Long.MAX_VALUE)), "small");
+        }
+        assertTrue(ExerciseBank.isBank(bankFile));
+        try (ExerciseBank bank = ExerciseBank.open(bankFile)) {
+            assertEquals(NUMERATORS.length + 1, bank.count());
+            ExerciseBank.Cursor cursor = bank.cursor();
+            for (int i = NUMERATORS.length - 1; i >= 0; i--) { // 倒序按题号随机访问
+                cursor.seek(i);
+                assertEquals(NUMERATORS[i], cursor.answerNumerator, "第 " + i + " 题答案的分子");
+                assertEquals(1, cursor.answerDenominator);
+                assertEquals(ExerciseBank.fingerprint("leaf " + NUMERATORS[i]), cursor.fingerprint);
+                assertEquals(new Fraction(NUMERATORS[i]), cursor.expression().evaluate());
+            }
+            cursor.seek(NUMERATORS.length);
+            assertEquals(Long.MAX_VALUE, cursor.answerDenominator);
+        }
+    }
+
+    // 2. 文本与题库互相转换后，习题与答案文本保持不变
+    @Test
+    void testTextRoundTrip(@TempDir Path directory) throws IOException {
+        new ArithmeticGenerator(10, directory.toString()).generate(500);
+        List<String> exercises = Files.readAllLines(directory.resolve("Exercises.txt"), StreamingWriter.CHARSET);
+        List<String> answers = Files.readAllLines(directory.resolve("Answers.txt"), StreamingWriter.CHARSET);
+        Path converted = Files.createDirectory(directory.resolve("converted"));
+        String bankFile = converted.resolve("Exercises.bin").toString();
+        ExerciseBank.fromText(directory.resolve("Exercises.txt").toString(), bankFile);
+        ExerciseBank.toText(bankFile, converted.toString());
+        assertEquals(exercises, Files.readAllLines(converted.resolve("Exercises.txt"), StreamingWriter.CHARSET));
+        assertEquals(answers, Files.readAllLines(converted.resolve("Answers.txt"), StreamingWriter.CHARSET));
+    }
+
+    // 2.1 文本转题库与文本批改按同样的规则解析：非ASCII数字、紧凑写法、制表符、括号不匹配等输入上两者的取舍一致，可计算时结果相同
+    @Test
+    void testParseMatchesScanner() {
+        String[] inputs = {"1 + 2 =", "1+2", "(1+2)×3 =", "1\t+\t2 =", " 2'1/3 ÷ 1/2 = ", "1 ÷ 0 =",
+                "١ + 2 =", "１ + 2 =", "1 + ２", "(1 + 2 =", "1 + 2) =", "() + 1 =", "1 + =", "=", "",
+                "1 2 + 3 =", "1 ++ 2 =", "1/0 + 1 =", "2' + 1 =", "1 * 2 =", "99999999999999999999 + 1 ="};
+        ExpressionScanner scanner = new ExpressionScanner();
+        for (String input : inputs) {
+            boolean scanned = scanner.evaluate(input, 0, input.length());
+            ArithmeticGenerator.Expression expression = ExerciseBank.parse(input);
+            Fraction parsed = null;
+            try {
+                parsed = expression == null ? null : expression.evaluate();
+            } catch (ArithmeticException e) {
+                // 除数为0，与扫描器判定为错误一致
+            }
+            assertEquals(scanned, parsed != null, input);
+            if (scanned) {
+                assertEquals(new Fraction(scanner.numerator, scanner.denominator), parsed, input);
+            }
+        }
+    }
+
+    // 3. 批量批改可直接使用二进制题库，结果与文本习题文件相同
+    @Test
+    void testBatchGradingWithBank(@TempDir Path directory) throws IOException {
+        new ArithmeticGenerator(10, directory.toString()).generate(200, true);
+        Path answers = Files.createDirectory(directory.resolve("answers"));
+        Files.copy(directory.resolve("Answers.txt"), answers.resolve("perfect.txt"));
+        Files.write(answers.resolve("empty.txt"), List.of());
+
+        Path textOutput = Files.createDirectory(directory.resolve("text"));
+        Path bankOutput = Files.createDirectory(directory.resolve("bank"));
+        new BatchGrader(textOutput.toString(), 2, true).grade(directory.resolve("Exercises.txt").toString(), answers.toString());
+        new BatchGrader(bankOutput.toString(), 2, true).grade(directory.resolve("Exercises.bin").toString(), answers.toString());
+
+        for (String file : new String[]{"Summary.txt", "perfect_Grade.txt", "empty_Grade.txt"}) {
+            assertEquals(Files.readAllLines(textOutput.resolve(file)), Files.readAllLines(bankOutput.resolve(file)), file);
+        }
+        assertEquals("Correct: 200 (1-200)", Files.readAllLines(bankOutput.resolve("perfect_Grade.txt")).get(0));
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+  二进制题库写入器：按ExerciseBank定义的格式逐题写入Exercises.bin
+  每道题记录预先计算好的答案、规范化字符串的指纹以及后缀形式的表达式操作码；
+  各题的起始偏移先流式写入临时索引文件，关闭时追加到题库末尾并回填文件头，内存占用与题目数量无关
+ */
+public class ExerciseBankWriter implements Closeable {
+    // 写缓冲区大小
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;      // 题库文件
+    private final Path indexPath;           // 临时索引文件：按顺序存放每道题记录的起始偏移
+    private final FileChannel indexChannel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Deque<ArithmeticGenerator.Expression> stack = new ArrayDeque<>(); // 后序遍历使用的显式栈
+    private long position = ExerciseBank.HEADER_SIZE; // 下一条记录在题库文件中的偏移
+    private long count = 0;                           // 已写入的题目数量
+
+    //创建（或覆盖）题库文件
+    public ExerciseBankWriter(String bankFile) throws IOException {
+        Path path = Paths.get(bankFile);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.indexPath = Paths.get(bankFile + ".index.tmp");
+        this.indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(ExerciseBank.HEADER_SIZE);
+    }
+
+    //写入一道题：canonical为表达式的规范化字符串（用于计算指纹）
+    public void write(ArithmeticGenerator.Expression expression, String canonical) throws IOException {
+        if (indexBuffer.remaining() < Long.BYTES) {
+            flush(indexBuffer, indexChannel);
+        }
+        indexBuffer.putLong(position);
+        count++;
+
+        Fraction answer = expression.evaluate();
+        putVarLong(zigZag(answer.numerator));
+        putVarLong(answer.denominator);
+        putLong(ExerciseBank.fingerprint(canonical));
+        writePostfix(expression);
+        putByte(ExerciseBank.OP_END);
+    }
+
+    //后序遍历表达式树（显式栈，不递归），依次写出操作数与运算符的操作码
+    private void writePostfix(ArithmeticGenerator.Expression root) throws IOException {
+        ArithmeticGenerator.Expression last = null; // 上一个输出的节点
+        ArithmeticGenerator.Expression node = root;
+        while (node != null || !stack.isEmpty()) {
+            if (node != null) {
+                stack.push(node);
+                node = node.left;
+                continue;
+            }
+            ArithmeticGenerator.Expression top = stack.peek();
+            if (top.right != null && top.right != last) {
+                node = top.right; // 右子树尚未输出，先处理右子树
+                continue;
+            }
+            stack.pop();
+            if (top.value != null) {
+                putByte(ExerciseBank.OP_PUSH);
+                putVarLong(zigZag(top.value.numerator));
+                putVarLong(top.value.denominator);
+            } else {
+                putByte(ExerciseBank.opcode(top.operator));
+            }
+            last = top;
+        }
+    }
+
+    //写出剩余缓冲区，追加偏移索引，并回填文件头（题目数量与索引偏移）
+    @Override
+    public void close() throws IOException {
+        try {
+            flush(buffer, channel);
+            flush(indexBuffer, indexChannel);
+            long indexOffset = position;
+            long indexSize = indexChannel.size();
+            for (long transferred = 0; transferred < indexSize; ) {
+                transferred += indexChannel.transferTo(transferred, indexSize - transferred, channel);
+            }
+            ByteBuffer header = ByteBuffer.allocate(ExerciseBank.HEADER_SIZE);
+            header.putInt(ExerciseBank.MAGIC).putInt(ExerciseBank.VERSION).putLong(count).putLong(indexOffset).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            try {
+                indexChannel.close();
+                Files.deleteIfExists(indexPath);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void putByte(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush(buffer, channel);
+        }
+        buffer.put((byte) b);
+        position++;
+    }
+
+    private void putLong(long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            putByte((int) (value >>> shift));
+        }
+    }
+
+    //变长整数编码（LEB128）：每字节低7位存数据，最高位表示后面是否还有字节
+    private void putVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            putByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        putByte((int) value);
+    }
+
+    //ZigZag编码：把有符号数映射为无符号数，使绝对值较小的负数也只占很少的字节
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,12 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/*
+  习题与答案的输出目标：生成器每得到一道题目就调用write推送，由实现类加上序号并输出
+  StreamingWriter通过写线程流式写入文件，MemoryWriter在调用线程上直接追加到内存中
+ */
+public interface ExerciseWriter extends Closeable {
+
+    //推送一道题目：按"序号. 内容"格式输出习题行和答案行（序号从1开始）
+    void write(String exercise, String answer) throws IOException;
+}
@@ -0,0 +1,330 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  表达式枚举器：对给定数值范围内所有合法且互不重复（按规范化字符串去重）的题目进行计数与编号
+  用动态规划按"操作符数量 + 表达式的值"统计合法表达式的个数，再根据计数把任意编号还原（unrank）为表达式
+  编号范围为[0, total())，不同编号对应的题目一定不重复，可用于无拒绝的均匀抽样、精确的-n可行性检查以及按编号区间分片出题
+  注意：状态数随数值范围和操作符数量迅速增长，只适用于较小的-r
+ */
+public class ExpressionEnumerator {
+    // 自动进行可行性检查的最大数值范围：超过该范围时统计整个表达式空间的代价过高（r=8约需数秒）
+    public static final int FEASIBILITY_RANGE_LIMIT = 8;
+    /*
+      随机出题最多凑齐全部不重复题目的1/RANDOM_FILL_RATIO：题目数量更接近总数时，随机生成的候选几乎都是重复题目，
+      要等停滞检测放弃才结束而凑不齐（如r=3时85881道中只生成了85745道），此时应改用均匀抽样
+     */
+    public static final int RANDOM_FILL_RATIO = 2;
+    // 运算符编号：与ArithmeticGenerator支持的四则运算符一一对应
+    private static final char[] OPERATORS = {'+', '-', '×', '÷'};
+
+    // 最大操作符数量：统计1~maxOperators个操作符的所有表达式
+    private final int maxOperators;
+    // values[k]：k个操作符的合法表达式可能取到的所有值（下标即值编号）
+    private final List<List<Fraction>> values = new ArrayList<>();
+    // counts[k][v]：k个操作符、值为values[k][v]的不重复表达式个数
+    private final long[][] counts;
+    // valuePrefix[k][v]：k个操作符时值编号小于v的表达式总数（前缀和，用于二分定位值编号）
+    private final long[][] valuePrefix;
+    // totalPrefix[k]：操作符数量在1~k-1之间的表达式总数
+    private final long[] totalPrefix;
+
+    /*
+      产生式表：k个操作符、值为v的表达式由哪些"运算符 + 左右子表达式类别"组合而成
+      第k层的产生式按目标值编号分组存储，prodStart[k][v]~prodStart[k][v+1]为值v的产生式区间
+      prodCumulative为组内累计个数（含当前产生式），用于二分定位编号落在哪个产生式上
+     */
+    private final int[][] prodStart;
+    private final byte[][] prodOperator;
+    private final int[][] prodLeftOperators;
+    private final int[][] prodLeftValue;
+    private final int[][] prodRightValue;
+    private final long[][] prodCumulative;
+
+    //构造枚举器：统计数值范围range内、含1~maxOperators个操作符的所有合法表达式
+    public ExpressionEnumerator(int range, int maxOperators) {
+        this(range, maxOperators, Long.MAX_VALUE);
+    }
+
+    //逐层统计1~maxOperators个操作符的表达式（每层只依赖更低的层），已统计的题目总数达到limit时不再统计更高的层
+    private ExpressionEnumerator(int range, int maxOperators, long limit) {
+        this.counts = new long[maxOperators + 1][];
+        this.valuePrefix = new long[maxOperators + 1][];
+        this.prodStart = new int[maxOperators + 1][];
+        this.prodOperator = new byte[maxOperators + 1][];
+        this.prodLeftOperators = new int[maxOperators + 1][];
+        this.prodLeftValue = new int[maxOperators + 1][];
+        this.prodRightValue = new int[maxOperators + 1][];
+        this.prodCumulative = new long[maxOperators + 1][];
+        this.totalPrefix = new long[maxOperators + 2];
+
+        buildLeaves(range);
+        int k = 0;
+        while (k < maxOperators && totalPrefix[k + 1] < limit) {
+            buildLevel(++k);
+            totalPrefix[k + 1] = Math.addExact(totalPrefix[k], valuePrefix[k][counts[k].length]);
+        }
+        this.maxOperators = k;
+    }
+
+    /*
+      判断数值范围range、最多maxOperators个操作符时能否生成n道不重复的题目
+      只构造一个枚举器逐层累加计数，一旦总数达到n就不再统计更高的层，只有必要时才统计完整的表达式空间
+      数值范围超过FEASIBILITY_RANGE_LIMIT时不做统计，直接视为可行（此时不重复的题目数量远超常用的-n）
+      已有完整枚举器时（如均匀抽样或服务模式的缓存）直接比较total()即可，无需再调用本方法
+     */
+    public static boolean isFeasible(int range, int maxOperators, long n) {
+        return count(range, maxOperators, n) >= n;
+    }
+
+    /*
+      统计不重复题目的数量，统计到不少于limit道时提前停止：返回值小于limit时为精确的总数，否则只保证不少于limit
+      数值范围超过FEASIBILITY_RANGE_LIMIT时不做统计，返回Long.MAX_VALUE
+     */
+    public static long count(int range, int maxOperators, long limit) {
+        if (range > FEASIBILITY_RANGE_LIMIT) {
+            return Long.MAX_VALUE;
+        }
+        return new ExpressionEnumerator(range, maxOperators, limit).total();
+    }
+
+    //不重复的合法题目总数（操作符数量1~maxOperators）
+    public long total() {
+        return totalPrefix[maxOperators + 1];
+    }
+
+    //恰好含operatorCount个操作符的不重复合法题目数量
+    public long count(int operatorCount) {
+        return valuePrefix[operatorCount][counts[operatorCount].length];
+    }
+
+    //将编号index（0 ≤ index < total()）还原为对应的表达式，耗时与表达式大小成正比（每层一次二分查找）
+    ArithmeticGenerator.Expression unrank(long index) {
+        if (index < 0 || index >= total()) {
+            throw new IndexOutOfBoundsException("题目编号超出范围: " + index + "，总数为 " + total());
+        }
+        // 先定位操作符数量，再定位表达式的值
+        int k = upperBound(totalPrefix, 1, maxOperators + 1, index) - 1;
+        long rank = index - totalPrefix[k];
+        int v = upperBound(valuePrefix[k], 0, counts[k].length, rank) - 1;
+        return build(k, v, rank - valuePrefix[k][v]);
+    }
+
+    //叶子层：整数0~range-1与分母不超过range的真分数（化简后去重），每个值恰好对应一个叶子
+    private void buildLeaves(int range) {
+        List<Fraction> leaves = new ArrayList<>();
+        Map<Fraction, Integer> index = new HashMap<>();
+        for (int i = 0; i < range; i++) {
+            addValue(leaves, index, new Fraction(i));
+        }
+        for (int denominator = 2; denominator <= range; denominator++) {
+            for (int numerator = 1; numerator < denominator; numerator++) {
+                addValue(leaves, index, new Fraction(numerator, denominator));
+            }
+        }
+        values.add(leaves);
+        counts[0] = new long[leaves.size()];
+        Arrays.fill(counts[0], 1);
+        valuePrefix[0] = prefixSums(counts[0]);
+    }
+
+    private static int addValue(List<Fraction> list, Map<Fraction, Integer> index, Fraction value) {
+        Integer existing = index.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        index.put(value, list.size());
+        list.add(value);
+        return list.size() - 1;
+    }
+
+    /*
+      统计第k层（k个操作符）：枚举左子树操作符数a（右子树为k-1-a）、左右子表达式的值和运算符
+      加法/乘法满足交换律，规范化字符串中左右子表达式无序，只统计无序对：
+      左右子树类别不同时取a<b（或a==b且左值编号<右值编号）的一侧，类别相同时个数为N(N+1)/2
+      减法要求左值≥右值，除法要求除数非0且结果为真分数或整数，二者左右有序
+     */
+    private void buildLevel(int k) {
+        List<Fraction> levelValues = new ArrayList<>();
+        Map<Fraction, Integer> index = new HashMap<>();
+        // 第一遍：确定本层所有可能的值，并统计每个值的产生式个数
+        int[] productionCount = new int[16];
+        for (int a = 0; a < k; a++) {
+            int b = k - 1 - a;
+            List<Fraction> leftValues = values.get(a);
+            List<Fraction> rightValues = values.get(b);
+            for (int u = 0; u < leftValues.size(); u++) {
+                for (int w = 0; w < rightValues.size(); w++) {
+                    for (int op = 0; op < OPERATORS.length; op++) {
+                        Fraction result = combine(op, a, u, b, w);
+                        if (result == null) continue;
+                        int v = addValue(levelValues, index, result);
+                        if (v >= productionCount.length) {
+                            productionCount = Arrays.copyOf(productionCount, productionCount.length * 2);
+                        }
+                        productionCount[v]++;
+                    }
+                }
+            }
+        }
+
+        int valueCount = levelValues.size();
+        int[] start = new int[valueCount + 1];
+        for (int v = 0; v < valueCount; v++) {
+            start[v + 1] = start[v] + productionCount[v];
+        }
+        int size = start[valueCount];
+        byte[] operator = new byte[size];
+        int[] leftOperators = new int[size];
+        int[] leftValue = new int[size];
+        int[] rightValue = new int[size];
+        long[] cumulative = new long[size];
+        long[] levelCounts = new long[valueCount];
+        int[] next = Arrays.copyOf(start, valueCount);
+
+        // 第二遍：按目标值分组填写产生式，并累计每个值的表达式个数
+        for (int a = 0; a < k; a++) {
+            int b = k - 1 - a;
+            List<Fraction> leftValues = values.get(a);
+            List<Fraction> rightValues = values.get(b);
+            for (int u = 0; u < leftValues.size(); u++) {
+                for (int w = 0; w < rightValues.size(); w++) {
+                    for (int op = 0; op < OPERATORS.length; op++) {
+                        Fraction result = combine(op, a, u, b, w);
+                        if (result == null) continue;
+                        int v = index.get(result);
+                        int p = next[v]++;
+                        operator[p] = (byte) op;
+                        leftOperators[p] = a;
+                        leftValue[p] = u;
+                        rightValue[p] = w;
+                        levelCounts[v] = Math.addExact(levelCounts[v], pairCount(op, a, u, b, w));
+                        cumulative[p] = levelCounts[v];
+                    }
+                }
+            }
+        }
+
+        values.add(levelValues);
+        counts[k] = levelCounts;
+        valuePrefix[k] = prefixSums(levelCounts);
+        prodStart[k] = start;
+        prodOperator[k] = operator;
+        prodLeftOperators[k] = leftOperators;
+        prodLeftValue[k] = leftValue;
+        prodRightValue[k] = rightValue;
+        prodCumulative[k] = cumulative;
+    }
+
+    //计算"左子表达式（a个操作符、值编号u） op 右子表达式（b个操作符、值编号w）"的值，组合不合法或需要跳过时返回null
+    private Fraction combine(int op, int a, int u, int b, int w) {
+        Fraction left = values.get(a).get(u);
+        Fraction right = values.get(b).get(w);
+        switch (OPERATORS[op]) {
+            case '+':
+            case '×':
+                // 交换律：只保留左类别"不大于"右类别的一侧，避免同一无序对被统计两次
+                if (a > b || (a == b && u > w)) return null;
+                return OPERATORS[op] == '+' ? left.add(right) : left.multiply(right);
+            case '-':
+                return left.compareTo(right) >= 0 ? left.subtract(right) : null;
+            default:
+                if (right.numerator == 0) return null;
+                Fraction result = left.divide(right);
+                return result.isProperFraction() || result.denominator == 1 ? result : null;
+        }
+    }
+
+    //左右子表达式类别组合出的不重复表达式个数：交换律运算且左右类别相同时为N(N+1)/2，否则为两侧个数之积
+    private long pairCount(int op, int a, int u, int b, int w) {
+        long left = counts[a][u];
+        if (isCommutative(op) && a == b && u == w) {
+            return Math.multiplyExact(left, left + 1) / 2;
+        }
+        return Math.multiplyExact(left, counts[b][w]);
+    }
+
+    private static boolean isCommutative(int op) {
+        return OPERATORS[op] == '+' || OPERATORS[op] == '×';
+    }
+
+    //构造k个操作符、值编号为v的第rank个表达式
+    private ArithmeticGenerator.Expression build(int k, int v, long rank) {
+        if (k == 0) {
+            return new ArithmeticGenerator.Expression(values.get(0).get(v));
+        }
+        // 定位编号落在哪个产生式上
+        long[] cumulative = prodCumulative[k];
+        int p = upperBound(cumulative, prodStart[k][v], prodStart[k][v + 1], rank);
+        if (p > prodStart[k][v]) {
+            rank -= cumulative[p - 1];
+        }
+        int op = prodOperator[k][p];
+        int a = prodLeftOperators[k][p];
+        int b = k - 1 - a;
+        int u = prodLeftValue[k][p];
+        int w = prodRightValue[k][p];
+
+        ArithmeticGenerator.Expression left;
+        ArithmeticGenerator.Expression right;
+        if (isCommutative(op) && a == b && u == w) {
+            // 同类别无序对：把rank还原为满足i ≤ j的下标对(i, j)
+            long n = counts[a][u];
+            long i = triangularRow(n, rank);
+            long j = i + (rank - rowOffset(n, i));
+            left = build(a, u, i);
+            right = build(a, u, j);
+        } else {
+            long rightCount = counts[b][w];
+            left = build(a, u, rank / rightCount);
+            right = build(b, w, rank % rightCount);
+        }
+        return new ArithmeticGenerator.Expression(left, right, OPERATORS[op]);
+    }
+
+    //N个元素的无序对(i, j)（i ≤ j）按i分行排列时，第i行之前的元素个数
+    private static long rowOffset(long n, long i) {
+        return i * n - i * (i - 1) / 2;
+    }
+
+    //二分查找rank所在的行号i：满足rowOffset(i) ≤ rank < rowOffset(i + 1)
+    private static long triangularRow(long n, long rank) {
+        long low = 0;
+        long high = n - 1;
+        while (low < high) {
+            long mid = (low + high + 1) >>> 1;
+            if (rowOffset(n, mid) <= rank) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    //在有序数组sorted的[from, to)区间内查找第一个大于key的位置
+    private static int upperBound(long[] sorted, int from, int to, long key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long[] prefixSums(long[] counts) {
+        long[] prefix = new long[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            prefix[i + 1] = Math.addExact(prefix[i], counts[i]);
+        }
+        return prefix;
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpressionEnumeratorTest {
+    private final ExpressionFormatter formatter = new ExpressionFormatter();
+
+    // 1. 手工计数：r=2时叶子为0、1、1/2，1个操作符的不重复题目为 +、×各6道（无序对），-、÷各6道
+    @Test
+    void testTotalForSmallRange() {
+        assertEquals(24, new ExpressionEnumerator(2, 1).total());
+    }
+
+    // 2. 每个编号还原出的题目互不重复、值非负，且操作符数量与编号所在的层一致
+    @Test
+    void testUnrankIsDistinctAndValid() {
+        ExpressionEnumerator enumerator = new ExpressionEnumerator(3, 2);
+        Set<String> seen = new HashSet<>();
+        long first = enumerator.count(1);
+        for (long i = 0; i < enumerator.total(); i++) {
+            ArithmeticGenerator.Expression expression = enumerator.unrank(i);
+            assertTrue(seen.add(formatter.canonical(expression)), "编号 " + i + " 与之前的题目重复");
+            assertTrue(expression.evaluate().numerator >= 0, "题目的值不能为负");
+            int operators = formatter.format(expression).split("[+\\-×÷]").length - 1;
+            assertEquals(i < first ? 1 : 2, operators, "编号 " + i + " 的操作符数量");
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> enumerator.unrank(enumerator.total()));
+    }
+
+    // 3. 可行性检查与完整枚举的总数一致：恰好total道可行，多一道不可行
+    @Test
+    void testFeasibilityMatchesTotal() {
+        for (int r = 2; r <= 4; r++) {
+            for (int m = 1; m <= 3; m++) {
+                long total = new ExpressionEnumerator(r, m).total();
+                assertTrue(ExpressionEnumerator.isFeasible(r, m, total), "r=" + r + ", m=" + m);
+                assertFalse(ExpressionEnumerator.isFeasible(r, m, total + 1), "r=" + r + ", m=" + m);
+            }
+        }
+    }
+
+    // 4. 统计到limit道即停止：总数小于limit时返回精确的总数，否则返回值不少于limit
+    @Test
+    void testCountStopsAtLimit() {
+        long total = new ExpressionEnumerator(3, 3).total();
+        assertEquals(total, ExpressionEnumerator.count(3, 3, total + 1));
+        assertEquals(total, ExpressionEnumerator.count(3, 3, Long.MAX_VALUE));
+        long partial = ExpressionEnumerator.count(3, 3, 10);
+        assertTrue(partial >= 10 && partial < total, "只应统计到第一个达到10道的层");
+        assertEquals(Long.MAX_VALUE, ExpressionEnumerator.count(ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT + 1, 3, 10));
+    }
+
+    // 5. 数值范围较大时不做统计，直接视为可行
+    @Test
+    void testLargeRangeIsFeasible() {
+        assertTrue(ExpressionEnumerator.isFeasible(ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT + 1, 3, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.Arrays;
+
+/*
+  表达式格式化器：用显式栈（不递归）把表达式树输出为题目文本（"1 + 2 × ( 3 - 1/2 )"）或规范化字符串（"(1+(2×(3-1/2)))"），
+  任意深度的表达式都不会栈溢出；所有输出共用一个可复用的StringBuilder，生成器每道题复用同一个实例
+  规范化字符串中，+与×的两个操作数按各自规范化字符串的字典序排列。比较两个子表达式时不拼接子串，
+  而是用两个游标按规范化顺序逐字符读取子树，读到第一个不同的字符即可得出结果，
+  每个节点的比较代价不超过较小子树的大小，总耗时与表达式长度近似线性（最坏为n·log n）
+  格式化器不是线程安全的，每个线程应各自创建实例
+ */
+public class ExpressionFormatter {
+    // 规范化顺序标记（缓存在节点的canonicalOrder字段上）
+    static final byte ORDER_UNKNOWN = 0; // 尚未计算
+    static final byte ORDER_KEEP = 1;    // 左右子表达式按原顺序输出
+    static final byte ORDER_SWAP = 2;    // 交换左右子表达式后输出
+
+    private final StringBuilder sb = new StringBuilder(); // 可复用的输出缓冲区
+    // 遍历栈：每个元素为一个内部节点及其遍历状态（格式化与计算规范化顺序共用）
+    private ArithmeticGenerator.Expression[] nodes = new ArithmeticGenerator.Expression[16];
+    private int[] states = new int[16];
+    private int nodeSize;
+    // 比较子表达式时使用的两个游标
+    private final Cursor first = new Cursor();
+    private final Cursor second = new Cursor();
+
+    //题目文本：按运算符优先级只在必要处添加括号，记号之间以空格分隔
+    //栈中每个内部节点的状态：0输出左括号并进入左子表达式，1输出运算符并进入右子表达式，2输出右括号并出栈
+    public String format(ArithmeticGenerator.Expression root) {
+        sb.setLength(0);
+        nodeSize = 0;
+        enter(root);
+        while (nodeSize > 0) {
+            ArithmeticGenerator.Expression node = nodes[nodeSize - 1];
+            // 左子表达式优先级低于当前运算符、右子表达式优先级低于或等于当前运算符时加括号
+            switch (states[nodeSize - 1]++) {
+                case 0:
+                    if (node.left.operator != 0 && precedence(node.operator) > precedence(node.left.operator)) {
+                        sb.append("( ");
+                    }
+                    enter(node.left);
+                    break;
+                case 1:
+                    if (node.left.operator != 0 && precedence(node.operator) > precedence(node.left.operator)) {
+                        sb.append(" )");
+                    }
+                    sb.append(' ').append(node.operator).append(' ');
+                    if (node.right.operator != 0 && precedence(node.operator) >= precedence(node.right.operator)) {
+                        sb.append("( ");
+                    }
+                    enter(node.right);
+                    break;
+                default:
+                    if (node.right.operator != 0 && precedence(node.operator) >= precedence(node.right.operator)) {
+                        sb.append(" )");
+                    }
+                    nodes[--nodeSize] = null;
+            }
+        }
+        return sb.toString();
+    }
+
+    //规范化字符串：每个内部节点输出为"(左运算符右)"，+与×的两个操作数按字典序排列，等价的表达式得到同一字符串
+    //栈中每个内部节点的状态：0输出"("并进入第一个操作数，1输出运算符并进入第二个操作数，2输出")"并出栈
+    public String canonical(ArithmeticGenerator.Expression root) {
+        computeOrder(root);
+        sb.setLength(0);
+        nodeSize = 0;
+        enter(root);
+        while (nodeSize > 0) {
+            ArithmeticGenerator.Expression node = nodes[nodeSize - 1];
+            boolean swap = node.canonicalOrder == ORDER_SWAP;
+            switch (states[nodeSize - 1]++) {
+                case 0:
+                    sb.append('(');
+                    enter(swap ? node.right : node.left);
+                    break;
+                case 1:
+                    sb.append(node.operator);
+                    enter(swap ? node.left : node.right);
+                    break;
+                default:
+                    sb.append(')');
+                    nodes[--nodeSize] = null;
+            }
+        }
+        return sb.toString();
+    }
+
+    //后序遍历（显式栈），为每个尚未计算的内部节点确定规范化顺序：子节点的顺序先于父节点确定
+    private void computeOrder(ArithmeticGenerator.Expression root) {
+        nodeSize = 0;
+        pushNode(root);
+        while (nodeSize > 0) {
+            ArithmeticGenerator.Expression node = nodes[nodeSize - 1];
+            if (node.value != null || node.canonicalOrder != ORDER_UNKNOWN) {
+                nodes[--nodeSize] = null;
+                continue;
+            }
+            if (states[nodeSize - 1]++ == 0) {
+                pushNode(node.right);
+                pushNode(node.left);
+                continue;
+            }
+            nodes[--nodeSize] = null;
+            boolean commutative = node.operator == '+' || node.operator == '×';
+            node.canonicalOrder = commutative && compare(node.left, node.right) > 0 ? ORDER_SWAP : ORDER_KEEP;
+        }
+    }
+
+    //按字典序比较两个子表达式的规范化字符串（结果与String.compareTo的符号一致），两个子表达式的规范化顺序须已确定
+    private int compare(ArithmeticGenerator.Expression a, ArithmeticGenerator.Expression b) {
+        // 叶子节点的文本以数字开头，内部节点以"("开头（"("小于任何数字），只要有一个叶子节点就无需逐字符读取子树
+        if (a.value != null && b.value != null) {
+            return a.text().compareTo(b.text());
+        }
+        if (a.value != null || b.value != null) {
+            return a.value != null ? 1 : -1;
+        }
+        first.reset(a);
+        second.reset(b);
+        while (true) {
+            int x = first.next();
+            int y = second.next();
+            if (x != y) {
+                return x < 0 ? -1 : y < 0 ? 1 : x - y;
+            }
+            if (x < 0) {
+                return 0;
+            }
+        }
+    }
+
+    //输出一个子表达式：叶子节点直接输出数值文本，内部节点入栈
+    private void enter(ArithmeticGenerator.Expression node) {
+        if (node.value != null) {
+            sb.append(node.text());
+        } else {
+            pushNode(node);
+        }
+    }
+
+    private void pushNode(ArithmeticGenerator.Expression node) {
+        if (nodeSize == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodeSize * 2);
+            states = Arrays.copyOf(states, nodeSize * 2);
+        }
+        states[nodeSize] = 0;
+        nodes[nodeSize++] = node;
+    }
+
+    //获取运算符优先级（用于判断是否需要添加括号）
+    private static int precedence(char op) {
+        switch (op) {
+            case '+':
+            case '-':
+                return 1; // 加减优先级低于乘除
+            case '×':
+            case '÷':
+                return 2; // 乘除优先级高于加减
+            default:
+                return 0; // 数值节点无优先级
+        }
+    }
+
+    /*
+      规范化字符串游标：按规范化顺序逐字符读取一棵子树，不生成字符串
+      栈中每个内部节点的状态：0输出"("，1进入第一个操作数，2输出运算符，3进入第二个操作数，4输出")"
+     */
+    private static class Cursor {
+        private ArithmeticGenerator.Expression[] nodes = new ArithmeticGenerator.Expression[16];
+        private int[] states = new int[16];
+        private int size;
+        private String leaf;   // 正在读取的叶子节点文本
+        private int leafIndex;
+
+        void reset(ArithmeticGenerator.Expression root) {
+            size = 0;
+            leaf = null;
+            push(root);
+        }
+
+        //下一个字符，读完时返回-1
+        int next() {
+            while (true) {
+                if (leaf != null) {
+                    if (leafIndex < leaf.length()) {
+                        return leaf.charAt(leafIndex++);
+                    }
+                    leaf = null;
+                }
+                if (size == 0) {
+                    return -1;
+                }
+                ArithmeticGenerator.Expression node = nodes[size - 1];
+                if (node.value != null) {
+                    size--;
+                    leaf = node.text();
+                    leafIndex = 0;
+                    continue;
+                }
+                boolean swap = node.canonicalOrder == ORDER_SWAP;
+                switch (states[size - 1]++) {
+                    case 0:
+                        return '(';
+                    case 1:
+                        push(swap ? node.right : node.left);
+                        break;
+                    case 2:
+                        return node.operator;
+                    case 3:
+                        push(swap ? node.left : node.right);
+                        break;
+                    default:
+                        size--;
+                        return ')';
+                }
+            }
+        }
+
+        private void push(ArithmeticGenerator.Expression node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                states = Arrays.copyOf(states, size * 2);
+            }
+            states[size] = 0;
+            nodes[size++] = node;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+import java.util.Arrays;
+
+/*
+  单遍表达式扫描器：逐字符扫描一行文本，就地解析整数、真分数与带分数，并用基本类型数组栈完成双栈法求值
+  扫描与求值过程中不创建String、Fraction等对象，结果保存在numerator/denominator字段中（已化简，分母为正）
+  扫描器持有可复用的栈数组，同一实例不能被多个线程同时使用，每个线程应各自创建实例
+  栈数组按需扩容，可处理任意深度的表达式；四则运算与Fraction使用相同的约分顺序与溢出检查，超出long范围的题目判定为错误
+ */
+public class ExpressionScanner {
+    // 最近一次evaluate/parseAnswer/parseOperand成功后的结果：分子与分母（已化简，分母恒为正）
+    long numerator;
+    long denominator;
+
+    // 操作数栈：分子、分母分开存储在两个long数组中，避免装箱
+    private long[] valueNumerators = new long[16];
+    private long[] valueDenominators = new long[16];
+    private int valueSize;
+    // 运算符栈：存储'+'、'-'、'×'、'÷'和'('
+    private char[] operators = new char[16];
+    private int operatorSize;
+
+    // 数字解析的临时结果（parseNumber写入，避免返回对象）
+    private long parsedNumerator;
+    private long parsedDenominator;
+    private int parsedEnd;
+    private long parsedDigits;
+
+    /*
+      批改一道题：计算习题行的正确结果，解析答案行，比较二者是否相等
+      习题行格式为"序号. 表达式 ="，答案行格式为"序号. 答案"；任一行格式错误或计算出错（如除数为0）都判定为错误
+     */
+    public boolean isCorrect(CharSequence exerciseLine, CharSequence answerLine) {
+        int exerciseStart = skipNumbering(exerciseLine, 0, exerciseLine.length());
+        if (exerciseStart < 0 || !evaluate(exerciseLine, exerciseStart, exerciseLine.length())) {
+            return false;
+        }
+        long expectedNumerator = numerator;
+        long expectedDenominator = denominator;
+        int answerStart = skipNumbering(answerLine, 0, answerLine.length());
+        if (answerStart < 0 || !parseAnswer(answerLine, answerStart, answerLine.length())) {
+            return false;
+        }
+        return numerator == expectedNumerator && denominator == expectedDenominator;
+    }
+
+    //跳过行首的"序号. "，返回其后第一个字符的位置；行首不是"数字. "格式时返回-1
+    public static int skipNumbering(CharSequence s, int from, int to) {
+        int i = skipSpaces(s, from, to);
+        int digitsStart = i;
+        while (i < to && isDigit(s.charAt(i))) {
+            i++;
+        }
+        if (i == digitsStart || i + 1 >= to || s.charAt(i) != '.' || s.charAt(i + 1) != ' ') {
+            return -1;
+        }
+        return i + 2;
+    }
+
+    /*
+      计算s[from, to)中的中缀表达式（遇到'='或区间末尾结束），成功时结果写入numerator/denominator并返回true
+      操作数支持整数、真分数（a/b）与带分数（a'b/c），运算符支持+、-、×、÷和括号，各记号之间以空格分隔
+     */
+    public boolean evaluate(CharSequence s, int from, int to) {
+        valueSize = 0;
+        operatorSize = 0;
+        int i = from;
+        boolean expectOperand = true; // 当前位置期望操作数（或左括号）还是运算符（或右括号）
+
+        while (true) {
+            i = skipSpaces(s, i, to);
+            if (i >= to || s.charAt(i) == '=') {
+                break;
+            }
+            char c = s.charAt(i);
+            if (expectOperand) {
+                if (c == '(') {
+                    pushOperator('(');
+                    i++;
+                } else if (isDigit(c) && parseNumber(s, i, to)) {
+                    pushValue(parsedNumerator, parsedDenominator);
+                    i = parsedEnd;
+                    expectOperand = false;
+                } else {
+                    return false;
+                }
+            } else if (c == ')') {
+                // 右括号：计算括号内的表达式，直到遇到左括号
+                while (operatorSize > 0 && operators[operatorSize - 1] != '(') {
+                    if (!applyTop()) return false;
+                }
+                if (operatorSize == 0) return false; // 括号不匹配
+                operatorSize--;
+                i++;
+            } else if (precedence(c) > 0) {
+                // 运算符：栈顶运算符优先级不低于当前运算符时先计算（左结合）
+                while (operatorSize > 0 && precedence(operators[operatorSize - 1]) >= precedence(c)) {
+                    if (!applyTop()) return false;
+                }
+                pushOperator(c);
+                i++;
+                expectOperand = true;
+            } else {
+                return false;
+            }
+        }
+
+        if (expectOperand) {
+            return false; // 空表达式或以运算符结尾
+        }
+        // 处理栈中剩余的运算符和操作数
+        while (operatorSize > 0) {
+            if (operators[operatorSize - 1] == '(' || !applyTop()) return false;
+        }
+        if (valueSize != 1) {
+            return false;
+        }
+        numerator = valueNumerators[0];
+        denominator = valueDenominators[0];
+        return true;
+    }
+
+    //解析s[from, to)中的答案（可带负号的整数、真分数或带分数，允许首尾空格），成功时结果写入numerator/denominator
+    public boolean parseAnswer(CharSequence s, int from, int to) {
+        int i = skipSpaces(s, from, to);
+        boolean negative = i < to && s.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i >= to || !isDigit(s.charAt(i)) || !parseNumber(s, i, to)) {
+            return false;
+        }
+        if (skipSpaces(s, parsedEnd, to) != to) {
+            return false;
+        }
+        numerator = negative ? -parsedNumerator : parsedNumerator;
+        denominator = parsedDenominator;
+        return true;
+    }
+
+    /*
+      从s[i]开始解析一个操作数（非负的整数、分数或带分数，规则与evaluate相同），成功时结果写入numerator/denominator，
+      返回操作数之后的位置；s[i]不是数字、格式错误或数值超出long范围时返回-1
+      供需要按同样规则解析表达式、但要构造表达式树的调用方（ExerciseBank.parse）使用
+     */
+    int parseOperand(CharSequence s, int i, int to) {
+        if (i >= to || !isDigit(s.charAt(i)) || !parseNumber(s, i, to)) {
+            return -1;
+        }
+        numerator = parsedNumerator;
+        denominator = parsedDenominator;
+        return parsedEnd;
+    }
+
+    //从s[i]开始解析一个非负的整数、分数或带分数，结果（已化简）写入parsedNumerator/parsedDenominator，结束位置写入parsedEnd
+    //数值超出long范围时返回false
+    private boolean parseNumber(CharSequence s, int i, int to) {
+        if ((i = parseDigits(s, i, to)) < 0) return false;
+        long first = parsedDigits;
+        long whole = 0;
+        if (i < to && s.charAt(i) == '\'') { // 带分数：整数部分'分子/分母
+            whole = first;
+            i++;
+            if (i >= to || !isDigit(s.charAt(i))) return false;
+            if ((i = parseDigits(s, i, to)) < 0) return false;
+            first = parsedDigits;
+            if (i >= to || s.charAt(i) != '/') return false;
+        }
+        long den = 1;
+        if (i < to && s.charAt(i) == '/') { // 分数：分子/分母
+            i++;
+            if (i >= to || !isDigit(s.charAt(i))) return false;
+            if ((i = parseDigits(s, i, to)) < 0) return false;
+            den = parsedDigits;
+            if (den == 0) return false;
+        }
+        parsedEnd = i;
+        try {
+            reduce(Math.addExact(Math.multiplyExact(whole, den), first), den);
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        return true;
+    }
+
+    //从s[i]开始解析连续的数字，结果写入parsedDigits，返回数字之后的位置；超出long范围时返回-1
+    private int parseDigits(CharSequence s, int i, int to) {
+        long value = 0;
+        while (i < to && isDigit(s.charAt(i))) {
+            int digit = s.charAt(i++) - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) return -1;
+            value = value * 10 + digit;
+        }
+        parsedDigits = value;
+        return i;
+    }
+
+    //弹出栈顶运算符和两个操作数，计算后将结果压回操作数栈；操作数不足、除数为0或结果超出long范围时返回false
+    //与Fraction的运算规则一致：加减以两分母的最小公倍数通分并约去分子与两分母公因数的公因数，乘除先交叉约去公因数，保证两者在同样的题目上溢出
+    private boolean applyTop() {
+        if (valueSize < 2) {
+            return false;
+        }
+        char op = operators[--operatorSize];
+        long bn = valueNumerators[--valueSize];
+        long bd = valueDenominators[valueSize];
+        long an = valueNumerators[--valueSize];
+        long ad = valueDenominators[valueSize];
+        long n;
+        long d;
+        long g1;
+        long g2;
+        try {
+            switch (op) {
+                case '+':
+                    g1 = gcd(ad, bd);
+                    n = Math.addExact(Math.multiplyExact(an, bd / g1), Math.multiplyExact(bn, ad / g1));
+                    if (n == 0) {
+                        d = 1;
+                        break;
+                    }
+                    g2 = gcd(Math.abs(n), g1);
+                    n /= g2;
+                    d = Math.multiplyExact(ad / g1, bd / g2);
+                    break;
+                case '-':
+                    g1 = gcd(ad, bd);
+                    n = Math.subtractExact(Math.multiplyExact(an, bd / g1), Math.multiplyExact(bn, ad / g1));
+                    if (n == 0) {
+                        d = 1;
+                        break;
+                    }
+                    g2 = gcd(Math.abs(n), g1);
+                    n /= g2;
+                    d = Math.multiplyExact(ad / g1, bd / g2);
+                    break;
+                case '×':
+                    g1 = gcd(Math.abs(an), bd);
+                    g2 = gcd(Math.abs(bn), ad);
+                    n = Math.multiplyExact(an / g1, bn / g2);
+                    d = Math.multiplyExact(ad / g2, bd / g1);
+                    break;
+                case '÷':
+                    if (bn == 0) return false;
+                    g1 = gcd(Math.abs(an), Math.abs(bn));
+                    g2 = gcd(ad, bd);
+                    n = Math.multiplyExact(an / g1, bd / g2);
+                    d = Math.multiplyExact(ad / g2, bn / g1);
+                    break;
+                default: return false;
+            }
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        reduce(n, d);
+        pushValue(parsedNumerator, parsedDenominator);
+        return true;
+    }
+
+    //化简分数并保证分母为正，结果写入parsedNumerator/parsedDenominator（与Fraction的化简规则一致）
+    private void reduce(long n, long d) {
+        if (d < 0) {
+            n = -n;
+            d = -d;
+        }
+        long g = gcd(Math.abs(n), d);
+        parsedNumerator = n / g;
+        parsedDenominator = d / g;
+    }
+
+    //两个非负整数的最大公约数
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private void pushValue(long n, long d) {
+        if (valueSize == valueNumerators.length) {
+            valueNumerators = Arrays.copyOf(valueNumerators, valueSize * 2);
+            valueDenominators = Arrays.copyOf(valueDenominators, valueSize * 2);
+        }
+        valueNumerators[valueSize] = n;
+        valueDenominators[valueSize++] = d;
+    }
+
+    private void pushOperator(char op) {
+        if (operatorSize == operators.length) {
+            operators = Arrays.copyOf(operators, operatorSize * 2);
+        }
+        operators[operatorSize++] = op;
+    }
+
+    //获取运算符的优先级（×、÷优先级高于+、-，左括号及非运算符为0）
+    static int precedence(char op) {
+        switch (op) {
+            case '+':
+            case '-':
+                return 1;
+            case '×':
+            case '÷':
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    //跳过s[i, to)开头的空白（空格、制表符、回车），返回第一个非空白字符的位置
+    static int skipSpaces(CharSequence s, int i, int to) {
+        while (i < to && isSpace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    //去掉s[from, to)末尾的空白，返回去掉后的结束位置
+    static int trimSpaces(CharSequence s, int from, int to) {
+        while (to > from && isSpace(s.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -3,6 +3,7 @@ import java.util.Objects;
 /*
  分数类，用于表示和处理分数相关逻辑，支持分数的四则运算、自动化简、大小比较、格式转换等功能
  实现Comparable<Fraction>接口，可直接对两个分数对象进行大小比较
+ 四则运算先约去公因数再相乘，并使用Math.*Exact检查溢出：结果超出long范围时抛出ArithmeticException，而不是静默得到错误的值
  */
 public class Fraction implements Comparable<Fraction> {
     // 分数的分子，使用long类型避免整数溢出问题
@@ -49,62 +50,114 @@ public class Fraction implements Comparable<Fraction> {
 
     /*
       私有方法：计算两个非负整数的最大公约数（GCD）
-      实现逻辑：采用欧几里得递归算法，当b为0时，a即为最大公约数
+      实现逻辑：采用欧几里得算法（循环实现），当b为0时，a即为最大公约数
      */
-    private long greatestCommonDivisor(long a, long b) {
-        return b == 0 ? a : greatestCommonDivisor(b, a % b);
+    private static long greatestCommonDivisor(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /*
+      私有方法：由已是最简形式且分母为正的分子、分母创建分数，不再重复化简
+      四则运算的参数都是最简分数，按下述方法约分后得到的结果必然也是最简分数
+     */
+    private static Fraction reduced(long numerator, long denominator) {
+        Fraction fraction = new Fraction(numerator);
+        fraction.denominator = denominator;
+        return fraction;
     }
 
     /*
       分数加法运算
-      运算逻辑：通分后分子相加（分子1*分母2 + 分子2*分母1），分母为两分母乘积
+      运算逻辑：以两分母的最小公倍数通分后分子相加（分子1*(分母2/g) + 分子2*(分母1/g)，g为两分母的最大公约数），
+      和的分子与分母的公因数只可能来自g，只需再约去分子与g的最大公约数
      */
     public Fraction add(Fraction other) {
-        long newNumerator = this.numerator * other.denominator + other.numerator * this.denominator;
-        long newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        if (this.denominator == 1 && other.denominator == 1) {
+            return new Fraction(Math.addExact(this.numerator, other.numerator));
+        }
+        long g = greatestCommonDivisor(this.denominator, other.denominator);
+        long newNumerator = Math.addExact(Math.multiplyExact(this.numerator, other.denominator / g),
+                Math.multiplyExact(other.numerator, this.denominator / g));
+        return combine(newNumerator, g, other);
     }
 
     /*
       分数减法运算
-      运算逻辑：通分后分子相减（分子1*分母2 - 分子2*分母1），分母为两分母乘积
+      运算逻辑：以两分母的最小公倍数通分后分子相减，约分方法同加法
      */
     public Fraction subtract(Fraction other) {
-        long newNumerator = this.numerator * other.denominator - other.numerator * this.denominator;
-        long newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        if (this.denominator == 1 && other.denominator == 1) {
+            return new Fraction(Math.subtractExact(this.numerator, other.numerator));
+        }
+        long g = greatestCommonDivisor(this.denominator, other.denominator);
+        long newNumerator = Math.subtractExact(Math.multiplyExact(this.numerator, other.denominator / g),
+                Math.multiplyExact(other.numerator, this.denominator / g));
+        return combine(newNumerator, g, other);
+    }
+
+    //加减法的约分：通分后的分子为newNumerator，g为两分母的最大公约数
+    private Fraction combine(long newNumerator, long g, Fraction other) {
+        if (newNumerator == 0) {
+            return new Fraction(0);
+        }
+        long g2 = g == 1 ? 1 : greatestCommonDivisor(Math.abs(newNumerator), g);
+        return reduced(newNumerator / g2, Math.multiplyExact(this.denominator / g, other.denominator / g2));
     }
 
     /*
       分数乘法运算
-      运算逻辑：分子与分子相乘作为新分子，分母与分母相乘作为新分母
+      运算逻辑：先交叉约去分子与另一分母的公因数，再分子与分子相乘、分母与分母相乘
      */
     public Fraction multiply(Fraction other) {
-        long newNumerator = this.numerator * other.numerator;
-        long newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        if (this.numerator == 0 || other.numerator == 0) {
+            return new Fraction(0);
+        }
+        long g1 = greatestCommonDivisor(Math.abs(this.numerator), other.denominator);
+        long g2 = greatestCommonDivisor(Math.abs(other.numerator), this.denominator);
+        long newNumerator = Math.multiplyExact(this.numerator / g1, other.numerator / g2);
+        long newDenominator = Math.multiplyExact(this.denominator / g2, other.denominator / g1);
+        return reduced(newNumerator, newDenominator);
     }
 
     /*
       分数除法运算
-     运算逻辑：除以一个分数等于乘以其倒数（分子*除数分母，分母*除数分子）
+     运算逻辑：除以一个分数等于乘以其倒数（分子*除数分母，分母*除数分子），相乘前先约去公因数
      */
     public Fraction divide(Fraction other) {
         if (other.numerator == 0) {
             throw new ArithmeticException("Cannot divide by zero.");
         }
-        long newNumerator = this.numerator * other.denominator;
-        long newDenominator = this.denominator * other.numerator;
-        return new Fraction(newNumerator, newDenominator);
+        if (this.numerator == 0) {
+            return new Fraction(0);
+        }
+        long g1 = greatestCommonDivisor(Math.abs(this.numerator), Math.abs(other.numerator));
+        long g2 = greatestCommonDivisor(this.denominator, other.denominator);
+        long newNumerator = Math.multiplyExact(this.numerator / g1, other.denominator / g2);
+        long newDenominator = Math.multiplyExact(this.denominator / g2, other.numerator / g1);
+        if (newDenominator < 0) {
+            // 除数为负时分母为负，统一分母为正
+            return reduced(Math.negateExact(newNumerator), Math.negateExact(newDenominator));
+        }
+        return reduced(newNumerator, newDenominator);
     }
 
     /*
       实现Comparable接口的方法，比较当前分数与另一个分数的大小
-      比较逻辑：交叉相乘比较（当前分子*other分母 vs other分子*当前分母），避免浮点数精度误差
+      比较逻辑：交叉相乘比较（当前分子*other分母 vs other分子*当前分母），乘积按128位计算，不会溢出
      */
     @Override
     public int compareTo(Fraction other) {
-        return Long.compare(this.numerator * other.denominator, other.numerator * this.denominator);
+        long leftHigh = Math.multiplyHigh(this.numerator, other.denominator);
+        long rightHigh = Math.multiplyHigh(other.numerator, this.denominator);
+        if (leftHigh != rightHigh) {
+            return Long.compare(leftHigh, rightHigh);
+        }
+        return Long.compareUnsigned(this.numerator * other.denominator, other.numerator * this.denominator);
     }
 
     /*
@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FractionTest {
+    private static final long MAX = Long.MAX_VALUE;
+
+    // 1. 结果超出long范围时抛出ArithmeticException，先约分再相乘时中间结果不会误判为溢出
+    @Test
+    void testOverflowIsDetected() {
+        assertThrows(ArithmeticException.class, () -> new Fraction(MAX).add(new Fraction(1)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(Long.MIN_VALUE + 1).subtract(new Fraction(2)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(1L << 32).multiply(new Fraction(1L << 31)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(1, MAX).add(new Fraction(1, MAX - 1)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(1L << 40).divide(new Fraction(1, 1L << 30)));
+        assertThrows(ArithmeticException.class, () -> new Fraction(1).divide(new Fraction(0)));
+
+        assertEquals(new Fraction(1), new Fraction(MAX, 3).multiply(new Fraction(3, MAX)));
+        assertEquals(new Fraction(MAX), new Fraction(MAX, 2).divide(new Fraction(1, 2)));
+        assertEquals(new Fraction(2, MAX), new Fraction(1, MAX).add(new Fraction(1, MAX)));
+    }
+
+    // 2. 交叉相乘按128位比较：乘积超出long范围时大小关系仍然正确
+    @Test
+    void testCompareBeyondLongRange() {
+        assertTrue(new Fraction(MAX, 2).compareTo(new Fraction(MAX - 2, 2)) > 0);
+        // MAX/(MAX-1) < (MAX-1)/(MAX-2)，交叉相乘的两个乘积都接近2^126
+        assertTrue(new Fraction(MAX, MAX - 1).compareTo(new Fraction(MAX - 1, MAX - 2)) < 0);
+        assertTrue(new Fraction(-MAX, MAX - 1).compareTo(new Fraction(-(MAX - 1), MAX - 2)) > 0);
+        assertTrue(new Fraction(-MAX, 3).compareTo(new Fraction(MAX, 5)) < 0);
+        assertEquals(0, new Fraction(MAX, MAX - 1).compareTo(new Fraction(MAX, MAX - 1)));
+    }
+
+    // 3. 格式化：整数、真分数、带分数与负数
+    @Test
+    void testToString() {
+        assertEquals("3", new Fraction(6, 2).toString());
+        assertEquals("3/4", new Fraction(6, 8).toString());
+        assertEquals("1'1/2", new Fraction(3, 2).toString());
+        assertEquals("-1'1/2", new Fraction(3, -2).toString());
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/*
+  批改结果：用long[]位图按顺序记录每道题的对错（每题1位，1表示做对），代替装箱的题号列表
+  评分文件流式写出，不在内存中拼接整行；可选把连续的题号压缩为区间（如"1-5000, 5002"）
+ */
+public class GradeResult {
+    private long[] bits = new long[16]; // 位图：第i题（从0开始）对应bits[i/64]的第i%64位
+    private long size;                  // 已记录的题目数量
+    private long correct;               // 做对的题目数量
+
+    //按顺序记录下一道题的对错
+    public void add(boolean isCorrect) {
+        ensureCapacity(size + 1);
+        if (isCorrect) {
+            bits[(int) (size >>> 6)] |= 1L << size;
+            correct++;
+        }
+        size++;
+    }
+
+    //把另一份结果的全部题目按顺序追加到当前结果之后（用于按顺序合并分块批改的结果）
+    public void addAll(GradeResult other) {
+        ensureCapacity(size + other.size);
+        int offset = (int) (size & 63);
+        for (int i = 0; i < (other.size + 63) >>> 6; i++) {
+            long word = other.bits[i];
+            int index = (int) ((size >>> 6) + i);
+            bits[index] |= word << offset;
+            if (offset != 0 && index + 1 < bits.length) {
+                bits[index + 1] |= word >>> (64 - offset);
+            }
+        }
+        size += other.size;
+        correct += other.correct;
+    }
+
+    //已记录的题目数量
+    public long size() {
+        return size;
+    }
+
+    //做对的题目数量
+    public long correctCount() {
+        return correct;
+    }
+
+    //做错的题目数量
+    public long wrongCount() {
+        return size - correct;
+    }
+
+    //第i题（从0开始）是否做对
+    public boolean isCorrect(long i) {
+        return (bits[(int) (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    //从第from题（从0开始）起查找第一道对错情况为isCorrect的题目，找不到时返回size（按64位整字跳过）
+    public long next(long from, boolean isCorrect) {
+        if (from >= size) {
+            return size;
+        }
+        int index = (int) (from >>> 6);
+        long word = (isCorrect ? bits[index] : ~bits[index]) & (-1L << from);
+        while (word == 0) {
+            if (++index >= (size + 63) >>> 6) {
+                return size;
+            }
+            word = isCorrect ? bits[index] : ~bits[index];
+        }
+        return Math.min(((long) index << 6) + Long.numberOfTrailingZeros(word), size);
+    }
+
+    //写出评分文件："Correct: 数量 (序号1, 序号2, ...)"与"Wrong: 数量 (...)"，compressRanges为true时连续题号写为"起-止"
+    public void write(String gradeFilePath, boolean compressRanges) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(gradeFilePath), 1 << 16)) {
+            write(writer, compressRanges);
+        }
+    }
+
+    //把评分内容写入writer（格式与评分文件相同，服务模式直接作为响应返回）
+    public void write(Writer writer, boolean compressRanges) throws IOException {
+        writer.write("Correct: " + correct + " ");
+        writeIndices(writer, true, compressRanges);
+        writer.write(System.lineSeparator());
+        writer.write("Wrong: " + wrongCount() + " ");
+        writeIndices(writer, false, compressRanges);
+        writer.write(System.lineSeparator());
+    }
+
+    //流式写出对错情况为isCorrect的题号（从1开始），格式为"(序号1, 序号2, ...)"
+    private void writeIndices(Writer writer, boolean isCorrect, boolean compressRanges) throws IOException {
+        char[] digits = new char[20];
+        writer.write('(');
+        boolean first = true;
+        for (long start = next(0, isCorrect); start < size; ) {
+            long end = compressRanges ? next(start, !isCorrect) : start + 1; // 连续区间[start, end)
+            if (!first) writer.write(", ");
+            writeNumber(writer, start + 1, digits);
+            if (end - start > 1) {
+                writer.write('-');
+                writeNumber(writer, end, digits);
+            }
+            first = false;
+            start = next(end, isCorrect);
+        }
+        writer.write(')');
+    }
+
+    //把非负整数逐位写入，避免为每个题号创建字符串
+    private static void writeNumber(Writer writer, long value, char[] digits) throws IOException {
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        writer.write(digits, position, digits.length - position);
+    }
+
+    private void ensureCapacity(long newSize) {
+        long words = (newSize + 63) >>> 6;
+        if (words > bits.length) {
+            bits = Arrays.copyOf(bits, (int) Math.max(words, (long) bits.length * 2));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/*
+  内存映射行读取器：从文件的指定偏移开始，按固定大小的窗口映射文件，逐行解码到可复用的CharBuffer中
+  只有当前窗口被映射，内存占用与文件大小无关；行跨越窗口末尾时从该行行首重新映射
+  同一实例只能由一个线程使用，多个线程可以对同一个FileChannel各自创建读取器
+ */
+public class MappedLineReader {
+    // 默认映射窗口大小
+    private static final int WINDOW_SIZE = 16 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final CharsetDecoder decoder = StreamingWriter.CHARSET.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private MappedByteBuffer window; // 当前映射窗口
+    private long windowStart;        // 当前窗口在文件中的起始偏移
+    private int windowSize = WINDOW_SIZE;
+    private long position;           // 下一行的起始偏移
+    private CharBuffer line = CharBuffer.allocate(256); // 可复用的行缓冲区
+
+    //从偏移start（应为某一行的行首）开始读取
+    public MappedLineReader(FileChannel channel, long start) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.position = start;
+    }
+
+    //下一行的起始偏移
+    public long position() {
+        return position;
+    }
+
+    //读取下一行（不含行尾的\n与\r），已到文件末尾时返回null；返回的缓冲区在下一次调用前有效
+    public CharBuffer nextLine() throws IOException {
+        if (position >= fileSize) {
+            return null;
+        }
+        while (true) {
+            if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+                map(position);
+            }
+            int start = (int) (position - windowStart);
+            int limit = window.limit();
+            int i = start;
+            while (i < limit && window.get(i) != '\n') {
+                i++;
+            }
+            boolean atEnd = windowStart + limit == fileSize;
+            if (i < limit || atEnd) {
+                int end = i;
+                if (end > start && window.get(end - 1) == '\r') {
+                    end--;
+                }
+                decode(start, end);
+                position = i < limit ? windowStart + i + 1 : fileSize;
+                return line;
+            }
+            // 行跨越窗口末尾：从行首重新映射；若整个窗口都装不下这一行，则扩大窗口
+            if (start == 0) {
+                windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+            }
+            map(position);
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        long size = Math.min(windowSize, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowStart = offset;
+    }
+
+    //将窗口中[start, end)的字节解码到行缓冲区，缓冲区不足时扩容后重新解码
+    private void decode(int start, int end) {
+        while (true) {
+            window.limit(end).position(start);
+            line.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(window, line, true);
+            if (!result.isOverflow()) {
+                result = decoder.flush(line);
+            }
+            window.limit(window.capacity());
+            if (!result.isOverflow()) {
+                line.flip();
+                return;
+            }
+            line = CharBuffer.allocate(line.capacity() * 2);
+        }
+    }
+}
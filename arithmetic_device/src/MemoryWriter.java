@@ -0,0 +1,34 @@
+/*
+  内存输出器：在调用线程上把带序号的习题行和答案行直接追加到两个StringBuilder中，不启动写线程、不分配缓冲区
+  适用于题目数量有上限、结果需要整体返回的场景（如服务模式的出题请求）；行格式与StreamingWriter写入的文件相同
+ */
+public class MemoryWriter implements ExerciseWriter {
+    // 行分隔符：与StreamingWriter一致
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final StringBuilder exercises = new StringBuilder(); // 习题内容（Exercises.txt）
+    private final StringBuilder answers = new StringBuilder();   // 答案内容（Answers.txt）
+    private int count = 0;                                       // 已推送的题目数量，用于生成行序号
+
+    @Override
+    public void write(String exercise, String answer) {
+        count++;
+        exercises.append(count).append(". ").append(exercise).append(LINE_SEPARATOR);
+        answers.append(count).append(". ").append(answer).append(LINE_SEPARATOR);
+    }
+
+    //无需释放资源
+    @Override
+    public void close() {
+    }
+
+    //习题内容
+    public String exercises() {
+        return exercises.toString();
+    }
+
+    //答案内容
+    public String answers() {
+        return answers.toString();
+    }
+}
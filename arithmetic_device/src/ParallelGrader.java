@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+  并行内存映射批改器：用于批改无法轻松装入内存的超大习题/答案文件
+  将习题文件按固定字节数切块，每块只批改行首落在块内的题目（按行对齐），各块在线程池中并行批改；
+  答案文件先并行统计每块的换行符数量，用于定位任意一行的起始偏移
+  每块的批改结果用位图（GradeResult，每题1位）记录，最后按块的顺序合并，流式写出与Grader相同格式的Grade.txt
+ */
+public class ParallelGrader {
+    // 切块大小：每个批改任务负责的习题文件字节数
+    private static final long CHUNK_SIZE = 32L << 20;
+    // 扫描换行符时使用的读取缓冲区大小
+    private static final int SCAN_BUFFER_SIZE = 64 << 10;
+
+    private final String outputPath; // Grade.txt的输出目录
+    private final int threads;       // 并行批改的线程数
+    private final boolean compressRanges; // 是否在评分文件中把连续的题号压缩为区间
+    private final Stats stats = new Stats(); // 运行统计：已批改行数与对错数量
+
+    //构造并行批改器：指定评分文件的输出目录、线程数以及是否压缩连续题号
+    public ParallelGrader(String outputPath, int threads, boolean compressRanges) {
+        this.outputPath = outputPath;
+        this.threads = threads;
+        this.compressRanges = compressRanges;
+    }
+
+    //运行统计：已批改行数与对错数量，批改过程中可由其他线程读取进度
+    public Stats stats() {
+        return stats;
+    }
+
+    //核心批改方法：内存映射习题与答案文件，切块并行批改后按顺序合并结果，生成Grade.txt
+    public void grade(String exerciseFile, String answerFile) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel exercises = FileChannel.open(Paths.get(exerciseFile), StandardOpenOption.READ);
+             FileChannel answers = FileChannel.open(Paths.get(answerFile), StandardOpenOption.READ)) {
+            // 第一步：并行统计两个文件每块的换行符数量
+            long[] exerciseNewlines = countNewlines(exercises, pool);
+            long[] answerNewlines = countNewlines(answers, pool);
+            long count = Math.min(lineCount(exercises, exerciseNewlines), lineCount(answers, answerNewlines));
+
+            // 第二步：按块并行批改，块首之前的换行符数量即为块首所在行的行号（从0开始）
+            List<Future<GradeResult>> futures = new ArrayList<>();
+            long newlinesBefore = 0;
+            for (int i = 0; i < exerciseNewlines.length; i++) {
+                long start = i * CHUNK_SIZE;
+                long end = Math.min(start + CHUNK_SIZE, exercises.size());
+                long before = newlinesBefore;
+                futures.add(pool.submit(() -> gradeChunk(exercises, answers, answerNewlines, start, end, before, count)));
+                newlinesBefore += exerciseNewlines[i];
+            }
+
+            // 第三步：按块的顺序合并结果，流式写出评分文件
+            GradeResult result = new GradeResult();
+            for (Future<GradeResult> future : futures) {
+                result.addAll(await(future));
+            }
+            stats.correct.add(result.correctCount());
+            stats.wrong.add(result.wrongCount());
+            result.write(Paths.get(outputPath, "Grade.txt").toString(), compressRanges);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+      批改一块：处理行首偏移落在[start, end)内、且行号小于count的所有题目
+      若start前一个字节不是换行符，说明块首处于上一块的某一行中间，跳过这半行
+     */
+    private GradeResult gradeChunk(FileChannel exercises, FileChannel answers, long[] answerNewlines,
+                                   long start, long end, long newlinesBefore, long count) throws IOException {
+        MappedLineReader exerciseReader = new MappedLineReader(exercises, start);
+        long firstLine = newlinesBefore;
+        if (start > 0 && byteAt(exercises, start - 1) != '\n') {
+            exerciseReader.nextLine();
+            firstLine++;
+        }
+        GradeResult result = new GradeResult();
+        if (exerciseReader.position() >= end || firstLine >= count) {
+            return result;
+        }
+
+        MappedLineReader answerReader = new MappedLineReader(answers, lineStart(answers, answerNewlines, firstLine));
+        ExpressionScanner scanner = new ExpressionScanner();
+        long line = firstLine;
+        while (exerciseReader.position() < end && line < count) {
+            CharBuffer exercise = exerciseReader.nextLine();
+            CharBuffer answer = answerReader.nextLine();
+            if (exercise == null || answer == null) {
+                break;
+            }
+            result.add(scanner.isCorrect(exercise, answer));
+            stats.lines.increment();
+            line++;
+        }
+        return result;
+    }
+
+    //并行统计文件每个切块中的换行符数量
+    private long[] countNewlines(FileChannel channel, ExecutorService pool) throws IOException {
+        int chunks = (int) ((channel.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            long start = i * CHUNK_SIZE;
+            long size = Math.min(CHUNK_SIZE, channel.size() - start);
+            futures.add(pool.submit((Callable<Long>) () -> countNewlines(channel.map(FileChannel.MapMode.READ_ONLY, start, size))));
+        }
+        long[] counts = new long[chunks];
+        for (int i = 0; i < chunks; i++) {
+            counts[i] = await(futures.get(i));
+        }
+        return counts;
+    }
+
+    private static long countNewlines(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[SCAN_BUFFER_SIZE];
+        long count = 0;
+        while (buffer.hasRemaining()) {
+            int length = Math.min(bytes.length, buffer.remaining());
+            buffer.get(bytes, 0, length);
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] == '\n') count++;
+            }
+        }
+        return count;
+    }
+
+    //文件总行数：换行符数量，若最后一行没有换行符结尾则再加1（与BufferedReader.readLine的行数一致）
+    private static long lineCount(FileChannel channel, long[] newlines) throws IOException {
+        long count = 0;
+        for (long n : newlines) {
+            count += n;
+        }
+        long size = channel.size();
+        if (size > 0 && byteAt(channel, size - 1) != '\n') {
+            count++;
+        }
+        return count;
+    }
+
+    //定位第line行（从0开始）的起始偏移：先根据每块的换行符数量确定所在切块，再在块内扫描
+    private static long lineStart(FileChannel channel, long[] newlines, long line) throws IOException {
+        if (line == 0) {
+            return 0;
+        }
+        long remaining = line; // 还需要越过的换行符数量
+        int chunk = 0;
+        while (chunk < newlines.length && newlines[chunk] < remaining) {
+            remaining -= newlines[chunk++];
+        }
+        if (chunk == newlines.length) {
+            return channel.size();
+        }
+        long start = chunk * CHUNK_SIZE;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                Math.min(CHUNK_SIZE, channel.size() - start));
+        for (int i = 0; ; i++) {
+            if (buffer.get(i) == '\n' && --remaining == 0) {
+                return start + i + 1;
+            }
+        }
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待批改任务时被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("批改任务失败", e.getCause());
+        }
+    }
+}
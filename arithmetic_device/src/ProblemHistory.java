@@ -0,0 +1,308 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+  历史题目索引：跨多次运行持久保存已出过题目的指纹（规范化字符串的64位FNV-1a哈希，见ExerciseBank.fingerprint），
+  新的运行据此跳过以前出过的题目，避免学生在不同的练习卷中遇到重复题目
+  文件是内存映射的开放寻址哈希表（线性探测），打开时只建立映射不读取内容，查询与插入均为O(1)
+  文件格式（多字节整数均为大端序）：
+    文件头：魔数"AHIX"(4字节) | 版本号(4字节) | 槽位数量(8字节，2的幂) | 指纹数量(8字节) | 未正常关闭标记(4字节) | 保留(4字节)
+    槽位：每个槽位8字节，存放一个指纹，0表示空槽位
+  并发与崩溃一致性：
+    运行期间持有"<索引文件>.lock"上的排他文件锁，同时运行的其他程序会等待锁释放
+    锁文件是空文件，关闭后有意保留：若关闭时删除，已打开它并在等待锁的程序会锁住被删除的旧文件，
+    而之后的程序会新建同名文件并加锁，两者将同时修改索引；锁文件可以随索引一起删除，但不能在程序运行期间删除
+    首次插入前置位未正常关闭标记并刷盘，关闭时刷盘后清除；打开时发现标记仍置位，说明上次运行中途退出，重新统计指纹数量
+    装载因子过高时把全部指纹重新散列到临时文件，刷盘后原子重命名替换原文件，任一时刻磁盘上都是完整的索引
+    Windows上仍被映射的文件不能被替换，而关闭通道并不会解除映射（映射要等到垃圾回收时才释放），
+    因此替换前以及关闭时都显式解除原文件与临时文件的映射
+ */
+public class ProblemHistory implements Closeable {
+    static final int MAGIC = 0x41484958; // "AHIX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // 新建索引的初始槽位数量
+    private static final long INITIAL_CAPACITY = 1L << 16;
+    // 最大装载因子（指纹数量/槽位数量），超过后槽位数量翻倍
+    private static final double MAX_LOAD = 0.6;
+    // 每个映射分段的大小：索引超过2GB时分多段映射（槽位按8字节对齐，不会跨越分段）
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    // 立即解除映射所用的sun.misc.Unsafe实例与invokeCleaner方法（运行环境不提供时为null，见unmap）
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path path;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private long capacity; // 槽位数量
+    private long mask;     // capacity - 1
+    private long size;     // 指纹数量
+    private boolean dirty; // 本次运行是否已修改索引
+
+    private ProblemHistory(Path path, FileChannel lockChannel, FileLock lock) {
+        this.path = path;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+    }
+
+    //打开（不存在时创建）历史题目索引，并在关闭前一直持有排他锁
+    public static ProblemHistory open(String historyFile) throws IOException {
+        Path path = Paths.get(historyFile);
+        FileChannel lockChannel = FileChannel.open(Paths.get(historyFile + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            ProblemHistory history = new ProblemHistory(path, lockChannel, lockChannel.lock());
+            if (Files.exists(path) && Files.size(path) > 0) {
+                history.map(path);
+            } else {
+                create(path, INITIAL_CAPACITY);
+                history.map(path);
+            }
+            return history;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    //已记录的指纹数量
+    public long size() {
+        return size;
+    }
+
+    //记录一个指纹：已存在时返回false，否则插入并返回true
+    public boolean add(long fingerprint) throws IOException {
+        if (segments == null) {
+            throw new IllegalStateException("历史题目索引已关闭"); // 映射已解除，不能再访问
+        }
+        fingerprint = normalize(fingerprint);
+        long slot = mix(fingerprint) & mask;
+        for (long stored; (stored = slotAt(segments, slot)) != 0; slot = (slot + 1) & mask) {
+            if (stored == fingerprint) return false;
+        }
+        if (!dirty) {
+            markDirty(true);
+        }
+        setSlot(segments, slot, fingerprint);
+        size++;
+        if (size > capacity * MAX_LOAD) {
+            grow();
+        }
+        return true;
+    }
+
+    //刷盘并写回指纹数量，清除未正常关闭标记，释放文件锁（锁文件保留，见类注释）
+    @Override
+    public void close() throws IOException {
+        try {
+            if (dirty) {
+                for (MappedByteBuffer segment : segments) {
+                    segment.force();
+                }
+                segments[0].putLong(16, size);
+                markDirty(false);
+            }
+        } finally {
+            try {
+                unmapAll();
+                channel.close();
+            } finally {
+                lock.release();
+                lockChannel.close();
+            }
+        }
+    }
+
+    //槽位数量翻倍：在临时文件中重新散列全部指纹，刷盘后关闭原索引并解除映射，再原子重命名替换原索引
+    private void grow() throws IOException {
+        Path temp = Paths.get(path + ".tmp");
+        long newCapacity = capacity * 2;
+        try {
+            rehash(temp, newCapacity);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp); // 原索引未被修改，删除不完整的临时文件即可
+            throw e;
+        }
+        unmapAll();
+        channel.close();
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            map(path); // 原索引仍然完整（本次插入已写入其映射），恢复映射后报告错误
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        dirty = false;
+        map(path);
+    }
+
+    //把全部指纹重新散列到槽位数量为newCapacity的新索引文件中，并刷盘
+    private void rehash(Path temp, long newCapacity) throws IOException {
+        create(temp, newCapacity);
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] newSegments = mapSegments(tempChannel, HEADER_SIZE + newCapacity * Long.BYTES);
+            long newMask = newCapacity - 1;
+            for (long i = 0; i < capacity; i++) {
+                long fingerprint = slotAt(segments, i);
+                if (fingerprint == 0) continue;
+                long slot = mix(fingerprint) & newMask;
+                while (slotAt(newSegments, slot) != 0) {
+                    slot = (slot + 1) & newMask;
+                }
+                setSlot(newSegments, slot, fingerprint);
+            }
+            newSegments[0].putLong(16, size);
+            for (MappedByteBuffer segment : newSegments) {
+                segment.force();
+            }
+            unmap(newSegments);
+        }
+    }
+
+    //创建空索引：写入文件头，并写入最后一个字节把文件扩展到完整大小（槽位区域为稀疏文件，不占用磁盘）
+    private static void create(Path file, long capacity) throws IOException {
+        try (FileChannel created = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            created.write(ByteBuffer.allocate(1), HEADER_SIZE + capacity * Long.BYTES - 1);
+            // 文件头通过通道写入而不映射，避免遗留的映射使该文件在Windows上无法被重命名
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(capacity).putLong(0).putInt(0).putInt(0).flip();
+            while (header.hasRemaining()) {
+                created.write(header, header.position());
+            }
+            created.force(true);
+        }
+    }
+
+    //映射索引文件并读取文件头；上次运行未正常关闭时重新统计指纹数量
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            throw new IOException("不是有效的历史题目索引文件: " + file);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE); // 通过通道读取文件头，不额外建立映射
+        while (header.hasRemaining()) {
+            channel.read(header, header.position());
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("不是有效的历史题目索引文件: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("不支持的历史题目索引版本: " + header.getInt(4));
+        }
+        capacity = header.getLong(8);
+        if (Long.bitCount(capacity) != 1 || fileSize != HEADER_SIZE + capacity * Long.BYTES) {
+            throw new IOException("历史题目索引文件已损坏: " + file);
+        }
+        mask = capacity - 1;
+        segments = mapSegments(channel, fileSize);
+        size = header.getLong(16);
+        if (header.getInt(24) != 0) {
+            size = 0;
+            for (long i = 0; i < capacity; i++) {
+                if (slotAt(segments, i) != 0) size++;
+            }
+        }
+    }
+
+    private static MappedByteBuffer[] mapSegments(FileChannel channel, long fileSize) throws IOException {
+        int segmentCount = (int) ((fileSize + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(1L << SEGMENT_SHIFT, fileSize - start));
+        }
+        return mapped;
+    }
+
+    //解除当前索引的映射；之后不能再访问segments，直到重新map
+    private void unmapAll() {
+        MappedByteBuffer[] mapped = segments;
+        segments = null;
+        if (mapped != null) {
+            unmap(mapped);
+        }
+    }
+
+    /*
+      立即解除映射（sun.misc.Unsafe.invokeCleaner，JDK 9起可用），不必等待垃圾回收释放映射
+      运行环境不提供该方法时退回到由垃圾回收释放：Linux等系统上不影响替换文件，Windows上替换会失败并报告IO错误
+      调用方必须保证之后不再访问这些缓冲区，否则会导致JVM崩溃
+     */
+    private static void unmap(MappedByteBuffer[] mapped) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            for (MappedByteBuffer buffer : mapped) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            }
+        } catch (ReflectiveOperationException e) {
+            // 无法立即解除映射，由垃圾回收释放
+        }
+    }
+
+    //写入未正常关闭标记并立即刷盘
+    private void markDirty(boolean value) {
+        segments[0].putInt(24, value ? 1 : 0);
+        segments[0].force(0, HEADER_SIZE);
+        dirty = value;
+    }
+
+    private static long slotAt(MappedByteBuffer[] segments, long slot) {
+        long position = HEADER_SIZE + slot * Long.BYTES;
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    private static void setSlot(MappedByteBuffer[] segments, long slot, long fingerprint) {
+        long position = HEADER_SIZE + slot * Long.BYTES;
+        segments[(int) (position >>> SEGMENT_SHIFT)].putLong((int) (position & SEGMENT_MASK), fingerprint);
+    }
+
+    //0用作空槽位标记，指纹恰好为0时改记为1（与指纹碰撞一样，只会多跳过极少数题目）
+    private static long normalize(long fingerprint) {
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    //打散指纹的各位（MurmurHash3的64位终混函数），使低位也均匀分布，再按掩码取槽位
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
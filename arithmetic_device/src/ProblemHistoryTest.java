@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ProblemHistoryTest {
+    // 超过初始容量（65536个槽位）的装载上限两次，触发两次扩容
+    private static final int COUNT = 100_000;
+
+    private static long fingerprint(int i) {
+        return ExerciseBank.fingerprint("problem " + i);
+    }
+
+    // 1. 扩容后全部指纹仍可查到，重新打开后数量与内容不变，不遗留临时文件
+    @Test
+    void testGrowAndReopen(@TempDir Path directory) throws IOException {
+        String file = directory.resolve("history.idx").toString();
+        try (ProblemHistory history = ProblemHistory.open(file)) {
+            for (int i = 0; i < COUNT; i++) {
+                assertTrue(history.add(fingerprint(i)), "第 " + i + " 个指纹应为新指纹");
+            }
+            for (int i = 0; i < COUNT; i += 97) {
+                assertFalse(history.add(fingerprint(i)), "扩容后应能查到第 " + i + " 个指纹");
+            }
+            assertEquals(COUNT, history.size());
+        }
+        assertFalse(Files.exists(Paths.get(file + ".tmp")));
+        assertEquals(ProblemHistory.HEADER_SIZE + (1L << 18) * Long.BYTES, Files.size(Paths.get(file)));
+        try (ProblemHistory history = ProblemHistory.open(file)) {
+            assertEquals(COUNT, history.size());
+            for (int i = 0; i < COUNT; i++) {
+                assertFalse(history.add(fingerprint(i)));
+            }
+            assertTrue(history.add(fingerprint(COUNT)));
+        }
+    }
+
+    // 2. 扩容替换文件前解除了原文件的映射：进程中不再映射已被替换（删除）的索引文件（Windows上遗留映射会导致替换失败）
+    @Test
+    void testGrowReleasesOldMapping(@TempDir Path directory) throws IOException {
+        Path maps = Paths.get("/proc/self/maps");
+        assumeTrue(Files.isReadable(maps), "需要Linux的/proc/self/maps");
+        Path file = directory.resolve("history.idx");
+        try (ProblemHistory history = ProblemHistory.open(file.toString())) {
+            for (int i = 0; i < COUNT; i++) {
+                history.add(fingerprint(i));
+            }
+            for (String line : Files.readAllLines(maps)) {
+                assertFalse(line.contains(directory.toString()) && (line.endsWith("(deleted)") || line.contains(".tmp")),
+                        "已被替换的索引文件仍被映射: " + line);
+            }
+        }
+        for (String line : Files.readAllLines(maps)) {
+            assertFalse(line.contains(file.toString()), "关闭后索引文件仍被映射: " + line);
+        }
+    }
+
+    // 3. 上次运行未正常关闭（未正常关闭标记仍置位）时，打开时重新统计指纹数量
+    @Test
+    void testRecoverAfterUncleanShutdown(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("history.idx");
+        try (ProblemHistory history = ProblemHistory.open(file.toString())) {
+            for (int i = 0; i < 1000; i++) {
+                history.add(fingerprint(i));
+            }
+        }
+        // 模拟中途退出：文件头中的指纹数量尚未写回，未正常关闭标记仍置位
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(12).putLong(0).putInt(1).flip();
+            channel.write(header, 16);
+        }
+        try (ProblemHistory history = ProblemHistory.open(file.toString())) {
+            assertEquals(1000, history.size(), "应重新统计指纹数量");
+            assertFalse(history.add(fingerprint(999)));
+        }
+    }
+
+    // 4. 关闭后保留空的锁文件（删除会让等待锁的程序与新程序同时持有锁），再次打开时复用
+    @Test
+    void testLockFileKept(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("history.idx");
+        Path lockFile = directory.resolve("history.idx.lock");
+        try (ProblemHistory history = ProblemHistory.open(file.toString())) {
+            history.add(fingerprint(1));
+        }
+        assertTrue(Files.exists(lockFile));
+        assertEquals(0, Files.size(lockFile));
+        try (ProblemHistory history = ProblemHistory.open(file.toString())) {
+            assertEquals(1, history.size());
+            assertFalse(history.add(fingerprint(1)));
+        }
+        assertEquals(0, Files.size(lockFile));
+    }
+
+    // 5. 指纹为0时改记为1（0表示空槽位），文件损坏时报告错误
+    @Test
+    void testZeroFingerprintAndCorruptFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("history.idx");
+        try (ProblemHistory history = ProblemHistory.open(file.toString())) {
+            assertTrue(history.add(0));
+            assertFalse(history.add(1));
+        }
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16,
+                17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32});
+        assertThrows(IOException.class, () -> ProblemHistory.open(file.toString()));
+    }
+}
@@ -1,16 +1,32 @@
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 //程序主入口类，负责解析命令行参数、调度两种核心模式（题目生成模式/答案批改模式）
 //并处理输出目录的创建，同时提供帮助信息指引用户正确使用参数
 
 public class Runner {
+    // 枚举模式（-u、-k）与题目数量可行性检查支持的最大运算符数量
+    private static final int ENUMERATION_MAX_OPERATORS = 3;
+
     public static void main(String[] args) {
         int n = -1; // 题目数量（仅生成模式有效，初始值-1表示未指定）
         int r = -1; // 数值范围（仅生成模式有效，初始值-1表示未指定，控制生成数值的最大值）
         String exerciseFile = null; // 习题文件路径（仅批改模式有效，初始值null表示未指定）
         String answerFile = null;   // 答案文件路径（仅批改模式有效，初始值null表示未指定）
+        String answerDirectory = null; // 答案目录路径（仅批量批改模式有效，目录下每个*.txt为一位学生的答卷）
         String outputPath = ".";    // 输出目录路径，默认值为当前目录（"."表示当前工作目录）
+        boolean uniform = false;    // 是否从全部不重复题目中均匀抽样（仅生成模式有效）
+        long firstIndex = -1;       // 按编号区间出题时的起始编号（从1开始，仅生成模式有效，初始值-1表示未指定）
+        boolean parallel = false;   // 是否使用内存映射并行批改（仅批改模式有效，适用于超大文件）
+        boolean compressRanges = false; // 是否在评分文件中把连续的题号压缩为区间（仅批改模式有效）
+        boolean binary = false;     // 是否同时写出二进制题库Exercises.bin（仅生成模式有效）
+        String toBinaryFile = null; // 待转换为二进制题库的文本习题文件（转换模式）
+        String toTextFile = null;   // 待还原为文本的二进制题库文件（转换模式）
+        String historyFile = null;  // 历史题目索引文件（仅生成模式有效，跨多次运行避免重复出题）
+        int maxOperators = 3;       // 每道题的最大运算符数量（仅生成模式有效，默认3个）
+        boolean serverMode = false; // 是否以服务模式启动（指定了-s参数）
+        int port = -1;              // 服务模式监听的端口（初始值-1表示未指定，启动前检查范围）
 
         // 解析命令行参数：遍历参数数组，根据参数标识分配对应值
         for (int i = 0; i < args.length; i++) {
@@ -37,6 +53,17 @@ public class Runner {
                         }
                     }
                     break;
+                case "-m": // 参数-m：指定每道题的最大运算符数量
+                    if (i + 1 < args.length) {
+                        try {
+                            maxOperators = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("错误：-m 参数需要一个有效的整数。");
+                            printHelp();
+                            return;
+                        }
+                    }
+                    break;
                 case "-e": // 参数-e：指定批改模式的习题文件路径
                     if (i + 1 < args.length) {
                         exerciseFile = args[++i]; // 直接赋值文件路径字符串
@@ -47,11 +74,66 @@ public class Runner {
                         answerFile = args[++i];
                     }
                     break;
+                case "-d": // 参数-d：指定批量批改模式的答案目录路径
+                    if (i + 1 < args.length) {
+                        answerDirectory = args[++i];
+                    }
+                    break;
                 case "-o": // 参数-o：指定输出目录路径（可选，默认当前目录）
                     if (i + 1 < args.length) {
                         outputPath = args[++i];
                     }
                     break;
+                case "-u": // 参数-u：从全部不重复题目中均匀抽样出题（无需参数值）
+                    uniform = true;
+                    break;
+                case "-k": // 参数-k：按枚举编号出题，输出第k ~ k+n-1号题目
+                    if (i + 1 < args.length) {
+                        try {
+                            firstIndex = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("错误：-k 参数需要一个有效的整数。");
+                            printHelp();
+                            return;
+                        }
+                    }
+                    break;
+                case "-p": // 参数-p：内存映射习题与答案文件，分块并行批改（无需参数值）
+                    parallel = true;
+                    break;
+                case "-c": // 参数-c：评分文件中把连续的题号压缩为区间，如"1-5000, 5002"（无需参数值）
+                    compressRanges = true;
+                    break;
+                case "-b": // 参数-b：生成题目时同时写出二进制题库Exercises.bin（无需参数值）
+                    binary = true;
+                    break;
+                case "-hi": // 参数-hi：指定历史题目索引文件，跳过以前出过的题目并记录本次出的题目
+                    if (i + 1 < args.length) {
+                        historyFile = args[++i];
+                    }
+                    break;
+                case "-s": // 参数-s：以服务模式启动，在本机的指定端口上提供出题与批改接口
+                    serverMode = true;
+                    if (i + 1 < args.length) {
+                        try {
+                            port = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("错误：-s 参数需要一个有效的端口号。");
+                            printHelp();
+                            return;
+                        }
+                    }
+                    break;
+                case "-tb": // 参数-tb：将文本习题文件转换为二进制题库
+                    if (i + 1 < args.length) {
+                        toBinaryFile = args[++i];
+                    }
+                    break;
+                case "-tt": // 参数-tt：将二进制题库还原为Exercises.txt与Answers.txt
+                    if (i + 1 < args.length) {
+                        toTextFile = args[++i];
+                    }
+                    break;
                 default: // 未知参数：遇到未定义的参数标识
                     System.err.println("未知参数: " + args[i]);
                     printHelp();
@@ -67,28 +149,176 @@ public class Runner {
                 outputDir.mkdirs(); // mkdirs()创建多级目录，mkdir()仅创建单级目录
             }
 
-            // 分支1：生成题目模式（需同时指定-n和-r参数，且r>1）
-            if (n != -1 && r != -1) {
+            // 分支0：服务模式（指定-s参数），常驻运行直到进程退出
+            if (serverMode) {
+                if (port < 0 || port > 65535) {
+                    System.err.println("错误：-s 参数必须是 0~65535 之间的端口号。");
+                    printHelp();
+                    return;
+                }
+                WorksheetServer server = WorksheetServer.start(port);
+                System.out.println("服务已启动：http://127.0.0.1:" + server.port() + "/ （/generate、/key、/grade），按 Ctrl+C 停止。");
+
+                // 分支1：生成题目模式（需同时指定-n和-r参数，且r>1）
+            } else if (n != -1 && r != -1) {
                 if (r <= 1) { // 数值范围必须大于1（避免分母为1或0，符合真分数生成逻辑）
                     System.err.println("错误：-r 参数必须是大于1的自然数。");
                     printHelp();
                     return;
                 }
-                System.out.println("正在生成 " + n + " 道题目，数值范围为 " + r + "...");
+                if (firstIndex != -1 && firstIndex < 1) {
+                    System.err.println("错误：-k 参数必须是正整数。");
+                    printHelp();
+                    return;
+                }
+                if (maxOperators < 1) {
+                    System.err.println("错误：-m 参数必须是正整数。");
+                    printHelp();
+                    return;
+                }
+                if (uniform && firstIndex != -1) {
+                    // 均匀抽样与按编号区间出题是两种互斥的枚举出题方式
+                    System.err.println("错误：-u 参数不能与 -k 同时使用。");
+                    printHelp();
+                    return;
+                }
+                if ((uniform || firstIndex != -1) && maxOperators > ENUMERATION_MAX_OPERATORS) {
+                    // 枚举器按(运算符数量, 数值)统计全部题目，运算符较多时不同数值的数量急剧增长
+                    System.err.println("错误：-u 与 -k 最多支持 " + ENUMERATION_MAX_OPERATORS + " 个运算符。");
+                    printHelp();
+                    return;
+                }
+                if (historyFile != null && (uniform || firstIndex != -1)) {
+                    // 枚举模式按编号出题，不同编号区间本就互不重复；均匀抽样无法跳过指定题目
+                    System.err.println("错误：-hi 参数不能与 -u 或 -k 同时使用。");
+                    printHelp();
+                    return;
+                }
+                if (!uniform && firstIndex == -1 && maxOperators <= ENUMERATION_MAX_OPERATORS) {
+                    // 数值范围较小时先检查题目数量是否可行，避免因不重复的题目不足而无限循环
+                    // 运算符较多时无法精确统计，由生成器的停滞检测兜底
+                    // 只统计到n的RANDOM_FILL_RATIO倍，同时判断是否可行以及随机出题能否凑齐
+                    long count = ExpressionEnumerator.count(r, maxOperators, (long) n * ExpressionEnumerator.RANDOM_FILL_RATIO);
+                    if (count < n) {
+                        System.err.println("错误：数值范围为 " + r + " 时只有 " + count + " 道不重复的题目，不足 " + n + " 道，请增大 -r 或减小 -n。");
+                        return;
+                    }
+                    // 题目数量接近全部不重复题目的数量时，随机出题凑不齐，自动改为均匀抽样
+                    if (count < (long) n * ExpressionEnumerator.RANDOM_FILL_RATIO) {
+                        if (historyFile != null) {
+                            // 均匀抽样无法跳过历史题目，随机出题又凑不齐
+                            System.err.println("错误：-n 超过数值范围为 " + r + " 时全部不重复题目的1/" + ExpressionEnumerator.RANDOM_FILL_RATIO
+                                    + "，随机出题难以凑齐，且 -hi 不能与均匀抽样同时使用，请增大 -r 或减小 -n。");
+                            return;
+                        }
+                        System.out.println("题目数量超过全部不重复题目的1/" + ExpressionEnumerator.RANDOM_FILL_RATIO
+                                + "，随机出题难以凑齐，改为从全部不重复的题目中均匀抽样（-u）。");
+                        uniform = true;
+                    }
+                }
                 // 创建题目生成器实例，传入数值范围和输出目录
-                ArithmeticGenerator generator = new ArithmeticGenerator(r, outputPath);
-                generator.generate(n); // 调用生成方法，生成n道题目
+                ArithmeticGenerator generator = new ArithmeticGenerator(r, outputPath, maxOperators);
+                Stats stats = generator.stats(); // 运行期间每秒打印进度，结束后写出Stats.json
+                String failure = "生成中断";
+                if (uniform || firstIndex != -1) {
+                    // 枚举模式：统计全部不重复题目并按编号还原，可精确判断题目数量是否足够
+                    ExpressionEnumerator enumerator = new ExpressionEnumerator(r, maxOperators);
+                    long last = firstIndex != -1 ? firstIndex - 1 + n : n;
+                    if (last > enumerator.total()) {
+                        System.err.println("错误：数值范围为 " + r + " 时只有 " + enumerator.total() + " 道不重复的题目。");
+                        return;
+                    }
+                    System.out.println("正在生成 " + n + " 道题目，数值范围为 " + r + "，共有 " + enumerator.total() + " 道不重复的题目...");
+                    stats.start("generate", n);
+                    try (StreamingWriter writer = StreamingWriter.open(outputPath);
+                         ExerciseBankWriter bank = binary ? generator.openBank() : null) {
+                        if (firstIndex != -1) {
+                            generator.generateRange(enumerator, firstIndex - 1, n, writer, bank);
+                        } else {
+                            generator.generateUniform(enumerator, n, writer, bank);
+                        }
+                        failure = null;
+                    } finally {
+                        finishStats(stats, failure, outputPath);
+                    }
+                } else {
+                    System.out.println("正在生成 " + n + " 道题目，数值范围为 " + r + "...");
+                    stats.start("generate", n);
+                    try (ProblemHistory history = historyFile != null ? ProblemHistory.open(historyFile) : null) {
+                        if (history != null) {
+                            System.out.println("历史题目索引中已有 " + history.size() + " 道题目，将跳过这些题目。");
+                            generator.setHistory(history);
+                        }
+                        generator.generate(n, binary); // 调用生成方法，生成n道题目
+                        failure = null;
+                    } catch (IllegalStateException e) {
+                        // 生成停滞：不重复的题目接近耗尽，已生成的题目保留在输出文件中
+                        failure = e.getMessage();
+                        System.err.println("错误：生成停滞，" + failure + "，请增大 -r 或减小 -n（或使用 -u 从全部不重复的题目中抽样）。");
+                        return;
+                    } finally {
+                        finishStats(stats, failure, outputPath);
+                    }
+                }
+                String operatorWarning = stats.operatorWarning();
+                if (operatorWarning != null) {
+                    System.err.println("警告：" + operatorWarning + "。");
+                }
                 System.out.println("生成完毕。文件已在 '" + outputPath + "' 目录中创建。");
 
                 // 分支2：答案批改模式（需同时指定-e和-a参数）
             } else if (exerciseFile != null && answerFile != null) {
                 System.out.println("正在批改作业...");
-                // 创建批改器实例，传入输出目录（评分文件Grade.txt将存于此目录）
-                Grader grader = new Grader(outputPath);
-                grader.grade(exerciseFile, answerFile); // 调用批改方法，比对习题与答案
+                String failure = "批改中断";
+                if (parallel && !ExerciseBank.isBank(exerciseFile)) {
+                    // 并行批改器：内存映射文件，按CPU核数分块并行批改（二进制题库无需解析习题，直接顺序批改）
+                    ParallelGrader grader = new ParallelGrader(outputPath, Runtime.getRuntime().availableProcessors(), compressRanges);
+                    grader.stats().start("grade", -1);
+                    try {
+                        grader.grade(exerciseFile, answerFile);
+                        failure = null;
+                    } finally {
+                        finishStats(grader.stats(), failure, outputPath);
+                    }
+                } else {
+                    // 创建批改器实例，传入输出目录（评分文件Grade.txt将存于此目录）
+                    Grader grader = new Grader(outputPath, compressRanges);
+                    grader.stats().start("grade", -1);
+                    try {
+                        grader.grade(exerciseFile, answerFile); // 调用批改方法，比对习题与答案
+                        failure = null;
+                    } finally {
+                        finishStats(grader.stats(), failure, outputPath);
+                    }
+                }
                 System.out.println("批改完毕。'Grade.txt' 文件已在 '" + outputPath + "' 目录中创建。");
 
-                // 分支3：参数不完整（未满足任一模式的参数要求）
+                // 分支3：批量批改模式（需同时指定-e和-d参数）
+            } else if (exerciseFile != null && answerDirectory != null) {
+                System.out.println("正在批量批改作业...");
+                // 习题只计算一次，按CPU核数并行批改目录下的所有答卷
+                BatchGrader grader = new BatchGrader(outputPath, Runtime.getRuntime().availableProcessors(), compressRanges);
+                String failure = "批改中断";
+                grader.stats().start("grade", -1);
+                try {
+                    grader.grade(exerciseFile, answerDirectory);
+                    failure = null;
+                } finally {
+                    finishStats(grader.stats(), failure, outputPath);
+                }
+                System.out.println("批改完毕。评分文件与 'Summary.txt' 已在 '" + outputPath + "' 目录中创建。");
+
+                // 分支4：题库格式转换模式（指定-tb或-tt参数）
+            } else if (toBinaryFile != null || toTextFile != null) {
+                if (toBinaryFile != null) {
+                    ExerciseBank.fromText(toBinaryFile, Paths.get(outputPath, "Exercises.bin").toString());
+                    System.out.println("转换完毕。'Exercises.bin' 已在 '" + outputPath + "' 目录中创建。");
+                } else {
+                    ExerciseBank.toText(toTextFile, outputPath);
+                    System.out.println("转换完毕。'Exercises.txt' 与 'Answers.txt' 已在 '" + outputPath + "' 目录中创建。");
+                }
+
+                // 分支5：参数不完整（未满足任一模式的参数要求）
             } else {
                 printHelp(); // 打印帮助信息，指导用户正确传参
             }
@@ -101,6 +331,12 @@ public class Runner {
         }
     }
 
+    //结束统计：停止进度打印，输出最终进度，并在输出目录下写出Stats.json（failure为null表示正常完成）
+    private static void finishStats(Stats stats, String failure, String outputPath) throws IOException {
+        stats.stop(failure);
+        System.out.println(stats.progressLine());
+        stats.writeJson(Paths.get(outputPath, "Stats.json").toString());
+    }
 
     //打印程序使用帮助信息，包括两种模式的命令格式、示例及参数说明
     private static void printHelp() {
@@ -108,15 +344,40 @@ public class Runner {
         System.out.println("用法: java -jar MyApp.jar [模式] [参数]");
         System.out.println("\n模式一：生成题目与答案");
         System.out.println("  java -jar MyApp.jar -n <题目数量> -r <数值范围> [-o <输出路径>]");
-        System.out.println("  示例: java -jar MyApp.jar -n 10 -r 10 -o ./output\n");
+        System.out.println("  示例: java -jar MyApp.jar -n 10 -r 10 -o ./output");
+        System.out.println("  java -jar MyApp.jar -n <题目数量> -r <数值范围> [-m <最大运算符数量>] [-u | -k <起始编号> | -hi <历史索引>] [-b] [-o <输出路径>]");
+        System.out.println("  示例: java -jar MyApp.jar -n 100 -r 5 -k 1001 -o ./output\n");
         System.out.println("模式二：检查答案对错");
-        System.out.println("  java -jar MyApp.jar -e <题目文件> -a <答案文件> [-o <输出路径>]");
+        System.out.println("  java -jar MyApp.jar -e <题目文件> -a <答案文件> [-p] [-c] [-o <输出路径>]");
         System.out.println("  示例: java -jar MyApp.jar -e Exercises.txt -a Answers.txt -o ./output\n");
+        System.out.println("模式三：批量检查整个班级的答案");
+        System.out.println("  java -jar MyApp.jar -e <题目文件> -d <答案目录> [-c] [-o <输出路径>]");
+        System.out.println("  示例: java -jar MyApp.jar -e Exercises.txt -d ./answers -o ./output\n");
+        System.out.println("模式四：文本习题与二进制题库互相转换");
+        System.out.println("  java -jar MyApp.jar -tb <题目文件> [-o <输出路径>]");
+        System.out.println("  java -jar MyApp.jar -tt <二进制题库> [-o <输出路径>]\n");
+        System.out.println("模式五：服务模式（常驻进程，通过本机HTTP接口按需出题与批改）");
+        System.out.println("  java -jar MyApp.jar -s <端口>");
+        System.out.println("  出题: curl 'http://127.0.0.1:<端口>/generate?n=10&r=10'（可加 &m=<最大运算符数量>、&u=1），返回练习卷编号、题目与答案");
+        System.out.println("  登记已有习题: curl --data-binary @Exercises.txt http://127.0.0.1:<端口>/key");
+        System.out.println("  批改: curl --data-binary @Answers.txt 'http://127.0.0.1:<端口>/grade?id=<练习卷编号>'（可加 &c=1）\n");
         System.out.println("参数说明:");
         System.out.println("  -n : 需要生成的题目数量 (自然数)。");
         System.out.println("  -r : 题目中数值的范围，小于此值 (需 > 1)。");
-        System.out.println("  -e : 【模式二】指定的题目文件路径。");
+        System.out.println("  -m : (可选) 每道题的最大运算符数量，默认为 3，可达数千（-u、-k 最多为 3）；实际可达的数量取决于 -r，-r 较大时子表达式的值很快超出long范围，题目明显短于 -m 时会给出警告。");
+        System.out.println("  -u : (可选) 从全部不重复的题目中均匀抽样，适用于较小的 -r；-n 超过全部不重复题目的一半时自动使用。");
+        System.out.println("  -k : (可选) 按编号出题，输出第 k ~ k+n-1 号题目，适用于较小的 -r 下分片出题。");
+        System.out.println("  -b : (可选) 同时生成二进制题库 Exercises.bin。");
+        System.out.println("  -hi: (可选) 历史题目索引文件（不存在时自动创建），跳过以前出过的题目并记录本次的题目，每周出题不重复；同目录下的 <历史索引>.lock 为锁文件，运行结束后保留。");
+        System.out.println("  -e : 【模式二】指定的题目文件路径，也可以是二进制题库。");
         System.out.println("  -a : 【模式二】指定的答案文件路径。");
+        System.out.println("  -d : 【模式三】答案目录，目录下每个 .txt 文件为一位学生的答卷。");
+        System.out.println("  -p : (可选)【模式二】内存映射文件并分块并行批改，适用于超大的题目/答案文件。");
+        System.out.println("  -c : (可选)【模式二、三】评分文件中把连续的题号写为区间，如 (1-5000, 5002)。");
+        System.out.println("  -tb: 【模式四】将文本题目文件转换为 Exercises.bin。");
+        System.out.println("  -tt: 【模式四】将二进制题库还原为 Exercises.txt 与 Answers.txt。");
+        System.out.println("  -s : 【模式五】服务监听的端口（只监听本机回环地址，0 表示由系统分配）。");
         System.out.println("  -o : (可选) 指定输出文件的存放目录，默认为当前目录。");
+        System.out.println("\n运行期间每秒打印一次进度，结束后在输出目录下生成统计文件 Stats.json。");
     }
 }
\ No newline at end of file
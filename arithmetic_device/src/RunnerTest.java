@@ -0,0 +1,32 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerTest {
+    // 1. 题目数量接近全部不重复题目的数量时自动改为均匀抽样，恰好生成n道不重复的题目，而不是生成停滞后提前结束
+    @Test
+    void testNearTotalSwitchesToUniform(@TempDir Path directory) throws IOException {
+        int total = (int) new ExpressionEnumerator(3, 3).total();
+        Runner.main(new String[]{"-n", String.valueOf(total), "-r", "3", "-o", directory.toString()});
+        List<String> exercises = Files.readAllLines(directory.resolve("Exercises.txt"), StreamingWriter.CHARSET);
+        assertEquals(total, exercises.size());
+        assertEquals(total, new HashSet<>(exercises).size());
+        String stats = Files.readString(directory.resolve("Stats.json"));
+        assertTrue(stats.contains("\"completed\": true"), stats);
+    }
+
+    // 2. 超过全部不重复题目的数量时直接报错，不生成文件
+    @Test
+    void testInfeasibleIsRejected(@TempDir Path directory) {
+        long total = new ExpressionEnumerator(2, 1).total();
+        Runner.main(new String[]{"-n", String.valueOf(total + 1), "-r", "2", "-m", "1", "-o", directory.toString()});
+        assertFalse(Files.exists(directory.resolve("Exercises.txt")));
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+  运行统计：记录生成与批改过程中的计数（候选题目、各类修正/重复、已生成题目、已批改行数与对错），
+  运行期间由后台线程每秒打印一行进度，结束后写出JSON格式的统计文件（Stats.json）
+  计数器使用LongAdder，可由多个批改线程同时累加，进度线程随时读取
+ */
+public class Stats {
+    // 进度打印间隔（毫秒）
+    private static final long PROGRESS_INTERVAL = 1000;
+
+    final LongAdder candidates = new LongAdder();     // 构造出的候选题目数量（含重复）
+    final LongAdder zeroDivisors = new LongAdder();   // 因除数为0而交换操作数或排除除法的次数
+    final LongAdder mixedQuotients = new LongAdder(); // 因商为带分数而交换操作数的次数
+    final LongAdder duplicates = new LongAdder();     // 与已生成题目重复而丢弃的候选数量
+    final LongAdder historyDuplicates = new LongAdder(); // 与历史题目索引中的题目重复而丢弃的候选数量
+    final LongAdder overflows = new LongAdder();      // 因运算结果超出long范围而改用其他运算符的次数
+    final LongAdder overflowReplacements = new LongAdder(); // 因子表达式合成溢出而把右子树替换为叶子节点的次数
+    final LongAdder overflowCandidates = new LongAdder(); // 替换后仍然溢出而丢弃的候选数量
+    final LongAdder problems = new LongAdder();       // 已输出的不重复题目数量
+    final LongAdder operators = new LongAdder();      // 已输出题目的运算符总数
+    final LongAccumulator deepest = new LongAccumulator(Math::max, 0); // 已输出题目中单道题的最多运算符数量
+    final LongAdder lines = new LongAdder();          // 已批改的行数
+    final LongAdder correct = new LongAdder();        // 批改结果为正确的行数
+    final LongAdder wrong = new LongAdder();          // 批改结果为错误的行数
+
+    private String mode;         // 运行模式："generate"或"grade"
+    private long target;         // 目标题目数量（批改模式为-1，表示事先未知）
+    private int maxOperators;    // 每道题的最大运算符数量（-m，批改模式为0）
+    private long startNanos;     // 开始时间
+    private long endNanos;       // 结束时间（运行中为0）
+    private String failure;      // 运行失败（如生成停滞）时的原因，正常结束为null
+    private Thread progressThread;
+
+    //开始计时，并启动每秒打印一行进度的后台线程；target为目标题目数量，未知时传-1
+    public void start(String mode, long target) {
+        this.mode = mode;
+        this.target = target;
+        this.startNanos = System.nanoTime();
+        progressThread = new Thread(this::report, "progress");
+        progressThread.setDaemon(true);
+        progressThread.start();
+    }
+
+    //记录每道题的最大运算符数量（-m），用于判断实际生成的题目是否明显短于要求
+    public void setMaxOperators(int maxOperators) {
+        this.maxOperators = maxOperators;
+    }
+
+    //已输出题目的平均运算符数量
+    public double meanOperators() {
+        long problemCount = problems.sum();
+        return problemCount == 0 ? 0 : (double) operators.sum() / problemCount;
+    }
+
+    /*
+      运算符数量在1~maxOperators中均匀选取，期望平均为(maxOperators+1)/2；数值范围较大时子表达式的值很快超出long范围，
+      合成溢出处的右子树会被替换为叶子节点，题目实际的运算符数量远少于-m
+      已输出题目的平均运算符数量不到期望的一半时返回提示文字，否则返回null
+     */
+    public String operatorWarning() {
+        double expected = (maxOperators + 1) / 2.0;
+        if (problems.sum() == 0 || meanOperators() * 2 >= expected) {
+            return null;
+        }
+        return String.format(Locale.ROOT, "题目平均只有 %.1f 个运算符、最多 %d 个（-m 为 %d，期望平均 %.1f 个）："
+                        + "子表达式的值超出long范围时右子树被替换为单个数值，可达的运算符数量取决于 -r，继续增大 -m 不会得到更长的题目",
+                meanOperators(), deepest.get(), maxOperators, expected);
+    }
+
+    //停止计时与进度打印；failure为失败原因，正常结束时传null
+    public void stop(String failure) {
+        endNanos = System.nanoTime();
+        this.failure = failure;
+        if (progressThread != null) {
+            progressThread.interrupt();
+            try {
+                progressThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    //进度线程：每隔PROGRESS_INTERVAL打印一行进度，直到被stop中断
+    private void report() {
+        try {
+            while (true) {
+                Thread.sleep(PROGRESS_INTERVAL);
+                System.out.println(progressLine());
+            }
+        } catch (InterruptedException e) {
+            // stop()通知结束
+        }
+    }
+
+    //当前进度：生成模式显示已生成数量、候选与重复数量及速度，批改模式显示已批改行数及速度
+    String progressLine() {
+        double seconds = elapsedSeconds();
+        if ("generate".equals(mode)) {
+            long done = problems.sum();
+            return String.format(Locale.ROOT, "进度：已生成 %d/%d 道题目（候选 %d，重复 %d），%.0f 道/秒",
+                    done, target, candidates.sum(), duplicates.sum() + historyDuplicates.sum(), done / seconds);
+        }
+        long done = lines.sum();
+        return String.format(Locale.ROOT, "进度：已批改 %d 行，%.0f 行/秒", done, done / seconds);
+    }
+
+    //已运行的秒数（停止后为总耗时）
+    public double elapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return Math.max(end - startNanos, 1) / 1e9;
+    }
+
+    //写出JSON格式的统计文件（UTF-8编码，各平台统一使用\n换行）
+    public void writeJson(String statsFile) throws IOException {
+        double seconds = elapsedSeconds();
+        long problemCount = problems.sum();
+        long lineCount = lines.sum();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(statsFile, StandardCharsets.UTF_8))) {
+            writer.write("{\n");
+            writer.write("  \"mode\": \"" + mode + "\",\n");
+            writer.write("  \"completed\": " + (failure == null) + ",\n");
+            if (failure != null) {
+                writer.write("  \"failure\": \"" + escape(failure) + "\",\n");
+            }
+            writer.write(String.format(Locale.ROOT, "  \"elapsedSeconds\": %.3f,\n", seconds));
+            if ("generate".equals(mode)) {
+                writer.write("  \"target\": " + target + ",\n");
+                writer.write("  \"problems\": " + problemCount + ",\n");
+                writer.write("  \"candidates\": " + candidates.sum() + ",\n");
+                writer.write("  \"rejections\": {\n");
+                writer.write("    \"zeroDivisor\": " + zeroDivisors.sum() + ",\n");
+                writer.write("    \"mixedNumberQuotient\": " + mixedQuotients.sum() + ",\n");
+                writer.write("    \"duplicate\": " + duplicates.sum() + ",\n");
+                writer.write("    \"historyDuplicate\": " + historyDuplicates.sum() + ",\n");
+                writer.write("    \"overflow\": " + overflowCandidates.sum() + "\n");
+                writer.write("  },\n");
+                writer.write("  \"overflowRetries\": " + overflows.sum() + ",\n");
+                writer.write("  \"overflowReplacements\": " + overflowReplacements.sum() + ",\n");
+                writer.write("  \"operators\": {\n");
+                writer.write("    \"max\": " + maxOperators + ",\n");
+                writer.write(String.format(Locale.ROOT, "    \"mean\": %.2f,\n", meanOperators()));
+                writer.write("    \"deepest\": " + deepest.get() + "\n");
+                writer.write("  },\n");
+                writer.write(String.format(Locale.ROOT, "  \"problemsPerSecond\": %.1f\n", problemCount / seconds));
+            } else {
+                writer.write("  \"lines\": " + lineCount + ",\n");
+                writer.write("  \"correct\": " + correct.sum() + ",\n");
+                writer.write("  \"wrong\": " + wrong.sum() + ",\n");
+                writer.write(String.format(Locale.ROOT, "  \"linesPerSecond\": %.1f\n", lineCount / seconds));
+            }
+            writer.write("}\n");
+        }
+    }
+
+    //转义JSON字符串中的引号、反斜杠与控制字符（服务模式输出JSON响应时同样使用）
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c == '\r') {
+                sb.append("\\r");
+            } else if (c == '\t') {
+                sb.append("\\t");
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,39 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatsTest {
+    // 1. Stats.json在各平台都只用\n换行，按UTF-8写出，失败原因中的引号与换行被转义
+    @Test
+    void testJsonLineEndingsAndEscapes(@TempDir Path directory) throws IOException {
+        Stats stats = new Stats();
+        stats.start("generate", 10);
+        stats.candidates.add(12);
+        stats.problems.add(3);
+        stats.stop("生成停滞，\"r\" 过小\n");
+        Path file = directory.resolve("Stats.json");
+        stats.writeJson(file.toString());
+
+        byte[] bytes = Files.readAllBytes(file);
+        for (byte b : bytes) {
+            assertNotEquals('\r', b, "Stats.json不应包含\\r");
+        }
+        String json = new String(bytes, StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\n  \"mode\": \"generate\",\n  \"completed\": false,\n"));
+        assertTrue(json.contains("  \"failure\": \"生成停滞，\\\"r\\\" 过小\\n\",\n"), json);
+        assertTrue(json.contains("  \"candidates\": 12,\n"));
+        assertTrue(json.endsWith("\n}\n"));
+    }
+
+    // 2. JSON字符串转义：引号、反斜杠、常见控制字符与其他控制字符
+    @Test
+    void testEscape() {
+        assertEquals("a\\\"b\\\\c\\n\\r\\t\\u0001é", Stats.escape("a\"b\\c\n\r\t\u0001é"));
+    }
+}
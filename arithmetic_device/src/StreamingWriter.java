@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+  流式输出器：生成线程把带序号的习题行和答案行放入有界队列，写线程不断从队列取出，
+  编码到直接缓冲区后通过NIO通道批量写入Exercises.txt和Answers.txt
+  队列容量与缓冲区大小固定，内存占用与题目数量无关，文件随生成进度逐步写满
+ */
+public class StreamingWriter implements ExerciseWriter {
+    // 有界队列容量：生成速度超过写盘速度时，生成线程在put处阻塞等待
+    private static final int QUEUE_CAPACITY = 4096;
+    // 每个文件的直接缓冲区大小：缓冲区写满后整体写入通道，减少系统调用次数
+    private static final int BUFFER_SIZE = 1 << 20;
+    // 结束标记：生成线程放入该对象通知写线程退出
+    private static final String[] END = new String[0];
+    // 行分隔符：与原BufferedWriter.newLine()保持一致
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    // 习题与答案文件的字符编码：固定为UTF-8，与批改时读取文件的编码一致，不随平台默认编码（如GBK）变化
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    private final BlockingQueue<String[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final WritableByteChannel exercisesChannel; // 习题输出通道
+    private final WritableByteChannel answersChannel;   // 答案输出通道
+    private final Charset charset;                      // 输出文件的字符编码
+    private final int bufferSize;                       // 每个通道的直接缓冲区大小
+    private final Thread writerThread;                  // 写线程：消费队列并写盘
+    private int count = 0;                              // 已推送的题目数量，用于生成行序号
+    private volatile IOException failure;               // 写线程遇到的IO异常，由生成线程在write/close时抛出
+
+    //构造流式输出器：传入习题和答案的输出通道，按CHARSET编码，并启动写线程
+    public StreamingWriter(WritableByteChannel exercisesChannel, WritableByteChannel answersChannel) {
+        this(exercisesChannel, answersChannel, CHARSET, BUFFER_SIZE);
+    }
+
+    //构造流式输出器，指定字符编码与缓冲区大小
+    public StreamingWriter(WritableByteChannel exercisesChannel, WritableByteChannel answersChannel,
+                           Charset charset, int bufferSize) {
+        this.exercisesChannel = exercisesChannel;
+        this.answersChannel = answersChannel;
+        this.charset = charset;
+        this.bufferSize = bufferSize;
+        this.writerThread = new Thread(this::drain, "exercise-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    //在输出目录下创建（或覆盖）Exercises.txt和Answers.txt，返回写入这两个文件的流式输出器
+    public static StreamingWriter open(String outputPath) throws IOException {
+        FileChannel exercises = openChannel(outputPath, "Exercises.txt");
+        try {
+            return new StreamingWriter(exercises, openChannel(outputPath, "Answers.txt"));
+        } catch (IOException e) {
+            exercises.close();
+            throw e;
+        }
+    }
+
+    private static FileChannel openChannel(String outputPath, String fileName) throws IOException {
+        return FileChannel.open(Paths.get(outputPath, fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    //推送一道题目：按"序号. 内容"格式生成习题行和答案行（序号从1开始），放入队列等待写线程写盘
+    @Override
+    public void write(String exercise, String answer) throws IOException {
+        checkFailure();
+        count++;
+        put(new String[]{count + ". " + exercise, count + ". " + answer});
+    }
+
+    //通知写线程结束：等待队列中剩余内容全部写盘后关闭两个通道
+    @Override
+    public void close() throws IOException {
+        try {
+            put(END);
+            writerThread.join();
+        } catch (InterruptedIOException e) {
+            abort();
+            throw e;
+        } catch (InterruptedException e) {
+            abort();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待写线程结束时被中断");
+        } finally {
+            closeChannels();
+        }
+        checkFailure();
+    }
+
+    //关闭时被中断：放弃队列中尚未写盘的内容并放入结束标记，让写线程丢弃剩余内容后退出
+    private void abort() {
+        if (failure == null) {
+            failure = new InterruptedIOException("输出被中断");
+        }
+        queue.clear();
+        queue.offer(END);
+    }
+
+    private void put(String[] lines) throws IOException {
+        try {
+            queue.put(lines);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待输出队列时被中断");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        try {
+            exercisesChannel.close();
+        } finally {
+            answersChannel.close();
+        }
+    }
+
+    //写线程主循环：批量取出队列中的行，编码进直接缓冲区，缓冲区写满时写入通道
+    //出错或被中断后继续消费队列直到结束标记，避免生成线程因队列已满而永久阻塞
+    private void drain() {
+        CharsetEncoder exercisesEncoder = charset.newEncoder();
+        CharsetEncoder answersEncoder = charset.newEncoder();
+        ByteBuffer exercisesBuffer = ByteBuffer.allocateDirect(bufferSize);
+        ByteBuffer answersBuffer = ByteBuffer.allocateDirect(bufferSize);
+        List<String[]> batch = new ArrayList<>(QUEUE_CAPACITY);
+        boolean finished = false;
+
+        while (!finished) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (failure == null) {
+                    failure = new InterruptedIOException("写线程被中断");
+                }
+                continue;
+            }
+            queue.drainTo(batch, QUEUE_CAPACITY - 1);
+            for (String[] lines : batch) {
+                if (lines == END) {
+                    finished = true;
+                    break;
+                }
+                if (failure != null) {
+                    continue;
+                }
+                try {
+                    encodeLine(lines[0], exercisesEncoder, exercisesBuffer, exercisesChannel);
+                    encodeLine(lines[1], answersEncoder, answersBuffer, answersChannel);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            batch.clear();
+        }
+
+        if (failure == null) {
+            try {
+                flush(exercisesBuffer, exercisesChannel);
+                flush(answersBuffer, answersChannel);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    //将一行内容和行分隔符编码进缓冲区，缓冲区空间不足时先写入通道再继续编码
+    private void encodeLine(String line, CharsetEncoder encoder, ByteBuffer buffer,
+                            WritableByteChannel channel) throws IOException {
+        encode(CharBuffer.wrap(line), encoder, buffer, channel);
+        encode(CharBuffer.wrap(LINE_SEPARATOR), encoder, buffer, channel);
+    }
+
+    private void encode(CharBuffer chars, CharsetEncoder encoder, ByteBuffer buffer,
+                        WritableByteChannel channel) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isUnderflow()) {
+                return;
+            }
+            if (result.isOverflow()) {
+                flush(buffer, channel);
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    //将缓冲区中已编码的内容全部写入通道，然后清空缓冲区
+    private void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingWriterTest {
+    private static final String NL = System.lineSeparator();
+
+    // 查找当前存活的写线程
+    private static Thread writerThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("exercise-writer") && t.isAlive())
+                .findFirst().orElseThrow();
+    }
+
+    // 1. 输出按UTF-8编码，与平台默认编码无关，行首带序号
+    @Test
+    void testWritesUtf8WithLineNumbers() throws IOException {
+        ByteArrayOutputStream exercises = new ByteArrayOutputStream();
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        try (StreamingWriter writer = new StreamingWriter(Channels.newChannel(exercises), Channels.newChannel(answers))) {
+            writer.write("3 × 1/2 =", "1'1/2");
+            writer.write("1 ÷ 4 =", "1/4");
+        }
+        assertArrayEquals(("1. 3 × 1/2 =" + NL + "2. 1 ÷ 4 =" + NL).getBytes(StreamingWriter.CHARSET), exercises.toByteArray(),
+                "习题文件应按UTF-8写出×与÷");
+        assertEquals("1. 1'1/2" + NL + "2. 1/4" + NL, answers.toString(StreamingWriter.CHARSET));
+    }
+
+    // 2. 大量题目跨越缓冲区时内容完整
+    @Test
+    void testFlushesAcrossBuffers() throws IOException {
+        ByteArrayOutputStream exercises = new ByteArrayOutputStream();
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        try (StreamingWriter writer = new StreamingWriter(Channels.newChannel(exercises), Channels.newChannel(answers),
+                StreamingWriter.CHARSET, 64)) {
+            for (int i = 0; i < 10000; i++) {
+                writer.write(i + " × 2 =", String.valueOf(i * 2));
+            }
+        }
+        String[] lines = answers.toString(StreamingWriter.CHARSET).split(NL);
+        assertEquals(10000, lines.length);
+        assertEquals("10000. 19998", lines[9999]);
+    }
+
+    // 3. 写线程被中断后仍继续消费队列：生成线程不会因队列已满而永久阻塞，close时报告中断
+    @Test
+    void testInterruptedWriterKeepsDraining() {
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            StreamingWriter writer = new StreamingWriter(Channels.newChannel(new ByteArrayOutputStream()),
+                    Channels.newChannel(new ByteArrayOutputStream()));
+            writerThread().interrupt();
+            for (int i = 0; i < 50000; i++) {
+                try {
+                    writer.write("1 + 1 =", "2");
+                } catch (InterruptedIOException e) {
+                    break; // 写线程的中断已被报告
+                }
+            }
+            assertThrows(InterruptedIOException.class, writer::close, "中断应在close时报告");
+        });
+    }
+}
@@ -0,0 +1,338 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/*
+  服务模式：常驻的JVM通过本机HTTP接口按需出题与批改，省去每次调用都启动JVM的开销，JIT编译结果与缓存在请求之间共享
+  每个请求在一个虚拟线程上处理（JDK 21及以上；更早的JDK上改用平台线程池）；只监听回环地址，供同一台机器上的学习平台调用
+  接口（响应均为UTF-8）：
+    GET  /generate?n=<题目数量>&r=<数值范围>[&m=<最大运算符数量>][&u=1]
+         出题，返回JSON：{"id": 练习卷编号, "exercises": Exercises.txt的内容, "answers": Answers.txt的内容}
+    POST /key            请求体为习题文件内容（"序号. 表达式 ="），登记一份已有的练习卷，返回JSON：{"id": 练习卷编号, "problems": 题目数量}
+                         请求体中没有一行能计算出答案的习题时返回400
+    POST /grade?id=<练习卷编号>[&c=1]
+         请求体为学生的答案文件内容（"序号. 答案"），返回与Grade.txt格式相同的评分结果
+  共享缓存：
+    练习卷的标准答案（AnswerKey）按最近使用顺序缓存，缓存的题目总数超过上限时淘汰最久未使用的练习卷
+    均匀抽样（u=1）与题目数量可行性检查所用的枚举器保存了每个数值范围内全部可能取值的分数表，构造一次后供所有请求共享
+    最大的枚举器（r=8、m=3）要构造数秒，因此服务启动时由后台线程按规模从小到大预先构造全部枚举器（共约数秒、约80MB），
+    请求线程不承担构造开销；启动后立即到达的请求只等待正在进行的构造，而不会重复构造
+  每个请求的内存有上限：题目数量、题目数量与运算符数量之积、请求体大小均有限制，超出时返回错误而不是占用大量内存
+ */
+public class WorksheetServer {
+    // 单个请求最多生成的题目数量
+    static final int MAX_PROBLEMS = 10000;
+    // 单个请求的题目数量与最大运算符数量之积的上限（限制单个响应的大小，约为数十MB）
+    static final long MAX_TOTAL_OPERATORS = 1_000_000;
+    // 请求体的最大字节数
+    static final int MAX_BODY_BYTES = 4 << 20;
+    // 标准答案缓存中题目总数的上限
+    static final long MAX_CACHED_PROBLEMS = 1_000_000;
+    // 均匀抽样与可行性检查支持的最大运算符数量（数值范围的上限为ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT）
+    static final int ENUMERATION_MAX_OPERATORS = 3;
+
+    private final HttpServer server;
+    private final ExecutorService executor = newExecutor();
+    private final SecureRandom ids = new SecureRandom();
+    // 练习卷编号 -> 标准答案（按访问顺序排列，最久未使用的在前），访问时需持有keys的锁
+    private final LinkedHashMap<String, AnswerKey> keys = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedProblems; // 缓存中的题目总数
+    // (数值范围, 最大运算符数量) -> 枚举器的构造任务，只为较小的数值范围构造（均匀抽样与可行性检查共用），数量有限
+    private final Map<Long, FutureTask<ExpressionEnumerator>> enumerators = new ConcurrentHashMap<>();
+    // 启动时预先构造全部枚举器的后台线程
+    private final Thread enumeratorBuilder = new Thread(this::buildEnumerators, "enumerators");
+
+    private WorksheetServer(HttpServer server) {
+        this.server = server;
+    }
+
+    //在本机回环地址的指定端口上启动服务（port为0时由系统分配端口）
+    public static WorksheetServer start(int port) throws IOException {
+        // 响应头与响应体分两次写出：关闭Nagle算法，否则长连接上的后一次写要等待客户端的延迟确认（约40ms）
+        // 该属性在首次创建HttpServer时读取，必须在create之前设置
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        WorksheetServer worksheetServer = new WorksheetServer(server);
+        server.createContext("/generate", worksheetServer::handleGenerate);
+        server.createContext("/key", worksheetServer::handleKey);
+        server.createContext("/grade", worksheetServer::handleGrade);
+        server.setExecutor(worksheetServer.executor);
+        server.start();
+        worksheetServer.enumeratorBuilder.setDaemon(true);
+        worksheetServer.enumeratorBuilder.start();
+        return worksheetServer;
+    }
+
+    /*
+      请求处理线程池：JDK 21及以上每个请求使用一个虚拟线程，更早的JDK上使用按需创建的平台线程池
+      通过反射调用Executors.newVirtualThreadPerTaskExecutor，程序源码在JDK 17上也能编译
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    //实际监听的端口
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    //停止服务：最多等待delaySeconds秒让正在处理的请求完成
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        enumeratorBuilder.interrupt();
+    }
+
+    //出题：在内存中生成题目与答案，登记标准答案后一并返回
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "只支持GET请求");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int n;
+            int r;
+            int m;
+            try {
+                n = Integer.parseInt(query.getOrDefault("n", "-1"));
+                r = Integer.parseInt(query.getOrDefault("r", "-1"));
+                m = Integer.parseInt(query.getOrDefault("m", "3"));
+            } catch (NumberFormatException e) {
+                sendText(exchange, 400, "参数n、r、m需要有效的整数");
+                return;
+            }
+            boolean uniform = "1".equals(query.get("u"));
+            if (n < 1 || n > MAX_PROBLEMS) {
+                sendText(exchange, 400, "参数n必须在1~" + MAX_PROBLEMS + "之间");
+                return;
+            }
+            if (r <= 1) {
+                sendText(exchange, 400, "参数r必须是大于1的自然数");
+                return;
+            }
+            if (m < 1 || (long) n * m > MAX_TOTAL_OPERATORS) {
+                sendText(exchange, 400, "参数m必须是正整数，且n与m之积不超过" + MAX_TOTAL_OPERATORS);
+                return;
+            }
+            if (uniform && (m > ENUMERATION_MAX_OPERATORS || r > ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT)) {
+                sendText(exchange, 400, "均匀抽样最多支持" + ENUMERATION_MAX_OPERATORS + "个运算符，数值范围不超过"
+                        + ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT);
+                return;
+            }
+            // 先检查题目数量是否可行，避免因不重复的题目不足而生成停滞
+            // 数值范围较小时用共享的枚举器精确统计（与均匀抽样共用同一个枚举器），较大时不重复的题目远超n的上限
+            boolean countable = m <= ENUMERATION_MAX_OPERATORS && r <= ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT;
+            ExpressionEnumerator enumerator = countable ? enumerator(r, m) : null;
+            if (countable && n > enumerator.total()) {
+                sendText(exchange, 400, "数值范围为 " + r + " 时不重复的题目不足 " + n + " 道");
+                return;
+            }
+            // 题目数量接近全部不重复题目的数量时随机出题凑不齐，与命令行一样自动改为均匀抽样
+            if (countable && (long) n * ExpressionEnumerator.RANDOM_FILL_RATIO > enumerator.total()) {
+                uniform = true;
+            }
+
+            // 题目数量有上限，直接在请求线程上输出到内存，无需写线程与缓冲区
+            MemoryWriter writer = new MemoryWriter();
+            ArithmeticGenerator generator = new ArithmeticGenerator(r, ".", m);
+            try {
+                if (uniform) {
+                    generator.generateUniform(enumerator, n, writer, null);
+                } else {
+                    generator.generate(n, writer);
+                }
+            } catch (IllegalStateException e) {
+                sendText(exchange, 400, "生成停滞，" + e.getMessage());
+                return;
+            }
+
+            String exercisesText = writer.exercises();
+            String id = register(AnswerKey.read(new BufferedReader(new StringReader(exercisesText))));
+            sendJson(exchange, "{\"id\": \"" + id + "\", \"exercises\": \"" + Stats.escape(exercisesText)
+                    + "\", \"answers\": \"" + Stats.escape(writer.answers()) + "\"}\n");
+        }
+    }
+
+    //登记已有的练习卷：计算请求体中每道习题的标准答案并缓存
+    private void handleKey(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "只支持POST请求");
+                return;
+            }
+            BufferedReader body = readBody(exchange);
+            if (body == null) {
+                return;
+            }
+            AnswerKey key = AnswerKey.read(body);
+            if (key.size() > MAX_PROBLEMS) {
+                sendText(exchange, 413, "一份练习卷最多包含" + MAX_PROBLEMS + "道题目");
+                return;
+            }
+            if (key.validCount() == 0) {
+                sendText(exchange, 400, "请求体中没有有效的习题（每行格式为\"序号. 表达式 =\"）");
+                return;
+            }
+            sendJson(exchange, "{\"id\": \"" + register(key) + "\", \"problems\": " + key.size() + "}\n");
+        }
+    }
+
+    //批改：用缓存的标准答案逐行批改请求体中的答案，返回评分结果
+    private void handleGrade(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "只支持POST请求");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            AnswerKey key;
+            synchronized (keys) {
+                key = keys.get(query.getOrDefault("id", ""));
+            }
+            if (key == null) {
+                sendText(exchange, 404, "练习卷不存在或已过期，请重新登记");
+                return;
+            }
+            BufferedReader body = readBody(exchange);
+            if (body == null) {
+                return;
+            }
+            GradeResult result = new GradeResult();
+            String line;
+            for (int i = 0; i < key.size() && (line = body.readLine()) != null; i++) {
+                result.add(key.isCorrect(i, line));
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                result.write(writer, "1".equals(query.get("c")));
+            }
+        }
+    }
+
+    //缓存标准答案并返回新的练习卷编号；缓存的题目总数超过上限时淘汰最久未使用的练习卷
+    private String register(AnswerKey key) {
+        String id = Long.toHexString(ids.nextLong());
+        synchronized (keys) {
+            keys.put(id, key);
+            cachedProblems += key.size();
+            Iterator<AnswerKey> eldest = keys.values().iterator();
+            while (cachedProblems > MAX_CACHED_PROBLEMS && keys.size() > 1) {
+                cachedProblems -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+        return id;
+    }
+
+    //共享的枚举器：每个(数值范围, 最大运算符数量)只构造一次，其他线程正在构造时等待其完成
+    private ExpressionEnumerator enumerator(int range, int maxOperators) {
+        FutureTask<ExpressionEnumerator> task = new FutureTask<>(() -> new ExpressionEnumerator(range, maxOperators));
+        FutureTask<ExpressionEnumerator> existing = enumerators.putIfAbsent(((long) range << 32) | maxOperators, task);
+        if (existing == null) {
+            existing = task;
+            task.run(); // 尚未有线程构造：在当前线程构造，其他线程等待同一个任务
+        }
+        try {
+            return existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待枚举器构造时被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("构造枚举器失败", e.getCause());
+        }
+    }
+
+    //后台线程：按规模从小到大构造全部可统计的(数值范围, 最大运算符数量)的枚举器，stop时中断（正在构造的枚举器会先完成）
+    private void buildEnumerators() {
+        for (int m = 1; m <= ENUMERATION_MAX_OPERATORS; m++) {
+            for (int r = 2; r <= ExpressionEnumerator.FEASIBILITY_RANGE_LIMIT; r++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    enumerator(r, m);
+                } catch (IllegalStateException e) {
+                    return; // 等待请求线程构造时被stop中断
+                }
+            }
+        }
+    }
+
+    //读取请求体（最多MAX_BODY_BYTES字节）；超出上限时返回413并返回null
+    private static BufferedReader readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    sendText(exchange, 413, "请求体超过" + MAX_BODY_BYTES + "字节");
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return new BufferedReader(new StringReader(body.toString(StandardCharsets.UTF_8)));
+    }
+
+    //解析查询字符串（"a=1&b=2"）
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        send(exchange, 200, "application/json; charset=UTF-8", json);
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "text/plain; charset=UTF-8", message + "\n");
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorksheetServerTest {
+    private static WorksheetServer server;
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = WorksheetServer.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+    private static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri(path)).GET().build());
+    }
+
+    private static HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri(path))
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)).build());
+    }
+
+    private static HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.port() + path);
+    }
+
+    //取出响应JSON中字符串字段的值（只还原服务端输出中会出现的\n、\r、\"与\\转义）
+    private static String field(String json, String name) {
+        int start = json.indexOf("\"" + name + "\": \"") + name.length() + 5;
+        StringBuilder value = new StringBuilder();
+        for (int i = start; json.charAt(i) != '"'; i++) {
+            char c = json.charAt(i);
+            if (c == '\\') {
+                c = json.charAt(++i);
+                c = c == 'n' ? '\n' : c == 'r' ? '\r' : c;
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    // 1. 出题后用返回的练习卷编号批改：提交标准答案时全部正确，习题按UTF-8返回
+    @Test
+    void testGenerateThenGrade() throws Exception {
+        HttpResponse<String> generated = get("/generate?n=20&r=10");
+        assertEquals(200, generated.statusCode(), generated.body());
+        String exercises = field(generated.body(), "exercises");
+        assertEquals(20, exercises.lines().count());
+        assertTrue(exercises.startsWith("1. ") && exercises.contains(" ="), exercises);
+
+        HttpResponse<String> graded = post("/grade?id=" + field(generated.body(), "id"), field(generated.body(), "answers"));
+        assertEquals(200, graded.statusCode());
+        assertTrue(graded.body().startsWith("Correct: 20 (1, 2, 3"), graded.body());
+    }
+
+    // 2. 题目数量接近全部不重复题目的数量时自动改为均匀抽样：r=2、m=1时共24道，要求全部24道也能生成
+    @Test
+    void testNearTotalUsesUniform() throws Exception {
+        HttpResponse<String> generated = get("/generate?n=24&r=2&m=1");
+        assertEquals(200, generated.statusCode(), generated.body());
+        assertEquals(24, field(generated.body(), "exercises").lines().distinct().count());
+    }
+
+    // 3. 登记已有的练习卷并批改；没有任何有效习题的请求体返回400，不登记
+    @Test
+    void testKey() throws Exception {
+        HttpResponse<String> key = post("/key", "1. 1/2 + 1 =\n2. 3 × 1/4 =\n");
+        assertEquals(200, key.statusCode());
+        assertTrue(key.body().contains("\"problems\": 2"), key.body());
+        HttpResponse<String> graded = post("/grade?id=" + field(key.body(), "id") + "&c=1", "1. 1'1/2\n2. 1\n");
+        assertEquals("Correct: 1 (1)", graded.body().lines().findFirst().orElse(""));
+
+        assertEquals(400, post("/key", "garbage").statusCode());
+        assertEquals(400, post("/key", "").statusCode());
+        assertEquals(400, post("/key", "1. 1 ÷ 0 =\nnot an exercise\n").statusCode());
+    }
+
+    // 4. 参数错误返回400，练习卷不存在返回404，请求方法不符返回405
+    @Test
+    void testErrors() throws Exception {
+        assertEquals(400, get("/generate?n=0&r=10").statusCode());
+        assertEquals(400, get("/generate?n=10&r=1").statusCode());
+        assertEquals(400, get("/generate?n=10&r=x").statusCode());
+        assertEquals(400, get("/generate?n=10000&r=2").statusCode()); // 不重复的题目不足
+        assertEquals(404, post("/grade?id=unknown", "1. 1\n").statusCode());
+        assertEquals(405, post("/generate?n=1&r=10", "").statusCode());
+        assertEquals(405, get("/key").statusCode());
+        assertEquals(405, get("/grade?id=unknown").statusCode());
+    }
+}